@@ -1,67 +1,101 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core;
 
+import java.lang.reflect.Constructor;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Base class for generic factories.
- * 
+ * Base class for generic factories. Implementation classes are resolved once per interface into a {@link FactoryHelper}
+ * that holds the class's constructor, so producing instances involves no class lookup. The helper table is immutable
+ * and replaced as a whole when a helper is added, so lookups are thread safe without locking.
+ *
  * @author Mark Sawers
  */
 public class AbstractFactory {
 
-	private static Map<String, FactoryHelper> helpers = new HashMap<String, FactoryHelper>();
+	private static volatile Map<String, FactoryHelper> helpers = Collections.emptyMap();
 
-	/** Returns singleton instance of the interface implementation, creating it on first access. */
-	public static Object getInstance(final String interfaceName, final String defaultImpl) {
+	/**
+	 * Returns helper for the interface, resolving the configured implementation class on first access.
+	 *
+	 * @throws RuntimeException if the implementation class cannot be loaded
+	 */
+	public static FactoryHelper getHelper(final String interfaceName, final String defaultImpl) {
 		FactoryHelper helper = helpers.get(interfaceName);
 		if (helper == null) {
-			return newInstance(interfaceName, defaultImpl);
-		} else {
-			return helper.getInstance();
+			synchronized (AbstractFactory.class) {
+				helper = helpers.get(interfaceName);
+				if (helper == null) {
+					helper = new FactoryHelper(interfaceName, defaultImpl);
+					final Map<String, FactoryHelper> newHelpers = new HashMap<String, FactoryHelper>(helpers);
+					newHelpers.put(interfaceName, helper);
+					helpers = Collections.unmodifiableMap(newHelpers);
+				}
+			}
 		}
+		return helper;
+	}
+
+	/** Returns singleton instance of the interface implementation, creating it on first access. */
+	public static Object getInstance(final String interfaceName, final String defaultImpl) {
+		return getHelper(interfaceName, defaultImpl).getInstance();
 	}
 
 	/** Returns new instance of the interface implementation. */
 	public static Object newInstance(final String interfaceName, final String defaultImpl) {
-		FactoryHelper helper = helpers.get(interfaceName);
-		if (helper == null) {
-			helper = new FactoryHelper(interfaceName, defaultImpl);
-			helpers.put(interfaceName, helper);
-		}
-		return helper.newInstance();
+		return getHelper(interfaceName, defaultImpl).newInstance();
 	}
 
-	/** Helps lookup implementation configuration, load the class and construct an instance. */
+	/**
+	 * Helps lookup implementation configuration, load the class and construct an instance. The no-arg constructor is
+	 * cached as a reflective Constructor rather than a MethodHandle: held in an instance field, not a static final
+	 * constant, a handle is not inlined by the JIT, while Constructor.newInstance is compiled to a generated accessor
+	 * after its first calls, so a handle would add complexity without being faster.
+	 */
 	public static class FactoryHelper {
-		private String implName;
-		private Object instance;
+		private final Constructor<?> constructor;
+		private final String implName;
+		private volatile Object instance;
 		private final String interfaceName;
-	
+
 		public FactoryHelper(final String interfaceName, final String defaultImpl) {
 			this.interfaceName = interfaceName;
 			this.implName = Config.properties.getProperty(interfaceName, defaultImpl);
+			try {
+				constructor = Class.forName(implName, false, AbstractFactory.class.getClassLoader())
+						.getConstructor();
+			} catch (final Exception exception) {
+				throw new RuntimeException("Error loading " + interfaceName + " implementation " + implName,
+						exception);
+			}
 		}
-	
+
 		public String getImplName() {
 			return implName;
 		}
-	
+
 		public Object getInstance() {
-			if (instance == null) {
-				instance = newInstance();
+			Object result = instance;
+			if (result == null) {
+				synchronized (this) {
+					result = instance;
+					if (result == null) {
+						instance = result = newInstance();
+					}
+				}
 			}
-			return instance;
+			return result;
 		}
-	
+
 		public String getInterfaceName() {
 			return interfaceName;
 		}
-	
+
 		public Object newInstance() {
 			try {
-				return Class.forName(implName).newInstance();
+				return constructor.newInstance();
 			} catch (final Exception exception) {
 				throw new RuntimeException("Error loading " + interfaceName + " implementation " + implName,
 						exception);
@@ -0,0 +1,13 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+/**
+ * Marks response serializers and request deserializers of binary formats, e.g. MessagePack. Their string forms hold one
+ * byte per char, converted to and from bytes with {@link #CHARSET}, which maps chars 0 to 255 to bytes one to one. The
+ * service uses it to send and receive bodies of binary media types unchanged.
+ *
+ * @author Mark Sawers
+ */
+public interface BinaryFormat {
+	public static final String CHARSET = "ISO-8859-1";
+}
@@ -22,60 +22,139 @@ public class Config {
 	public static final String DEFAULT_AUTHORIZER = "org.restsql.security.impl.AuthorizerImpl";
 	public static final String DEFAULT_CONNECTION_FACTORY = "org.restsql.core.impl.ConnectionFactoryImpl";
 	public static final String DEFAULT_DATABASE_DRIVER_CLASSNAME = "com.mysql.jdbc.Driver";
+	public static final String DEFAULT_DATABASE_EXECUTOR = "false";
+	public static final String DEFAULT_DATABASE_EXECUTOR_QUEUE_SIZE = "100";
+	public static final String DEFAULT_DATABASE_EXECUTOR_THREADS = "10";
+	public static final String DEFAULT_DATABASE_EXECUTOR_VIRTUAL_THREADS = "false";
 	public static final String DEFAULT_DATABASE_PASSWORD = "root";
+	public static final String DEFAULT_DATABASE_QUERY_TIMEOUT = "0";
+	public static final String DEFAULT_DATABASE_REPLICA_READ_YOUR_WRITES_WINDOW = "5000";
+	public static final String DEFAULT_DATABASE_REPLICA_READS = "true";
+	public static final String DEFAULT_DATABASE_REPLICA_ROUTING = "roundRobin";
+	public static final String DEFAULT_DATABASE_STREAMING_FETCH_SIZE = "0";
 	public static final String DEFAULT_DATABASE_URL = "jdbc:mysql://localhost:3306/";
 	public static final String DEFAULT_DATABASE_USER = "root";
+	public static final String DEFAULT_HTTP_BATCH_MAX_OPERATIONS = "100";
+	public static final String DEFAULT_HTTP_BATCH_MAX_PARALLELISM = "4";
 	public static final String DEFAULT_HTTP_CACHE_CONTROL = "no-cache, no-transform";
+	public static final String DEFAULT_HTTP_COMPRESSION_THRESHOLD = "-1";
+	public static final String DEFAULT_HTTP_CONCURRENCY_ADAPTIVE = "false";
+	public static final String DEFAULT_HTTP_CONCURRENCY_ADAPTIVE_BACKOFF_RATIO = "0.9";
+	public static final String DEFAULT_HTTP_CONCURRENCY_ADAPTIVE_LATENCY_TOLERANCE = "2.0";
+	public static final String DEFAULT_HTTP_CONCURRENCY_ADAPTIVE_MIN_CONCURRENT = "1";
+	public static final String DEFAULT_HTTP_CONCURRENCY_GLOBAL_MAX_CONCURRENT = "0";
+	public static final String DEFAULT_HTTP_CONCURRENCY_MAX_CONCURRENT = "0";
+	public static final String DEFAULT_HTTP_CONCURRENCY_MAX_QUEUED = "50";
+	public static final String DEFAULT_HTTP_CONCURRENCY_QUEUE_TIMEOUT = "1000";
+	public static final String DEFAULT_HTTP_CONCURRENCY_RETRY_AFTER = "1";
 	public static final String DEFAULT_HTTP_REQUEST_ATTRIBUTES = "org.restsql.core.impl.HttpRequestAttributesImpl";
 	public static final String DEFAULT_JAVA_LOGGING_CONFIG = "resources/properties/default-logging.properties";
 	public static final String DEFAULT_LOG4J_CONFIG = "resources/properties/default-log4j.properties";
 	public static final String DEFAULT_LOGGING_DIR = "/var/log/restsql";
 	public static final String DEFAULT_LOGGING_FACILITY = "log4j";
+	public static final String DEFAULT_METADATA_DISCOVERY = "bulk";
+	public static final String DEFAULT_READ_COALESCING = "false";
 	public static final String DEFAULT_REQUEST_FACTORY = "org.restsql.core.impl.RequestFactoryImpl";
 	public static final String DEFAULT_REQUEST_LOGGER = "org.restsql.core.impl.RequestLoggerImpl";
 	public static final String DEFAULT_REQUEST_DESERIALIZER_FACTORY = "org.restsql.core.impl.RequestDeserializerFactoryImpl";
 	public static final String DEFAULT_REQUEST_USE_XML_SCHEMA = "false";
+	public static final String DEFAULT_RESPONSE_ARROW_BATCH_SIZE = "4096";
+	public static final String DEFAULT_RESPONSE_FLUSH_INTERVAL = "100";
 	public static final String DEFAULT_RESPONSE_SERIALIZER_FACTORY = "org.restsql.core.impl.ResponseSerializerFactoryImpl";
+	public static final String DEFAULT_RESPONSE_STREAM_XML = "false";
 	public static final String DEFAULT_RESPONSE_USE_XML_DIRECTIVE = "false";
 	public static final String DEFAULT_RESPONSE_USE_XML_SCHEMA = "false";
 	public static final String DEFAULT_RESTSQL_PROPERTIES = "/resources/properties/default-restsql.properties";
+	public static final String DEFAULT_SECURITY_DECISION_CACHE_SIZE = "10000";
+	public static final String DEFAULT_SECURITY_DECISION_CACHE_TTL = "0";
+	public static final String DEFAULT_SECURITY_PRIVILEGES_RELOAD_INTERVAL = "30000";
 	public static final String DEFAULT_SQL_BUILDER = "org.restsql.core.impl.SqlBuilderImpl";
 	public static final String DEFAULT_SQL_RESOURCE_FACTORY = "org.restsql.core.impl.SqlResourceFactoryImpl";
 	public static final String DEFAULT_SQL_RESOURCE_METADATA = "org.restsql.core.impl.SqlResourceMetaDataMySql";
+	public static final String DEFAULT_SQL_STATS_MAX_FINGERPRINTS = "1000";
+	public static final String DEFAULT_SQL_STATS_SLOW_THRESHOLD = "1000";
+	public static final String DEFAULT_SQL_STATS_TOP = "25";
 	public static final String DEFAULT_SQLRESOURCES_DIR = "/resources/xml/sqlresources";
+	public static final String DEFAULT_SQLRESOURCES_WATCH = "false";
+	public static final String DEFAULT_SQLRESOURCES_WATCH_DEBOUNCE = "500";
+	public static final String DEFAULT_TRIGGERS_ASYNC_QUEUE_SIZE = "1000";
+	public static final String DEFAULT_TRIGGERS_ASYNC_THREADS = "4";
+	public static final String DEFAULT_WARMUP_ENABLED = "true";
+	public static final String DEFAULT_WARMUP_THREADS = "4";
 
 	public static final String KEY_AUTHORIZER = "org.restsql.security.Authorizer";
 	public static final String KEY_CONNECTION_FACTORY = "org.restsql.core.Factory.Connection";
 	public static final String KEY_DATABASE_DRIVER_CLASSNAME = "database.driverClassName";
+	public static final String KEY_DATABASE_EXECUTOR = "database.executor";
+	public static final String KEY_DATABASE_EXECUTOR_QUEUE_SIZE = "database.executor.queueSize";
+	public static final String KEY_DATABASE_EXECUTOR_THREADS = "database.executor.threads";
+	public static final String KEY_DATABASE_EXECUTOR_VIRTUAL_THREADS = "database.executor.virtualThreads";
 	public static final String KEY_DATABASE_PASSWORD = "database.password";
+	public static final String KEY_DATABASE_QUERY_TIMEOUT = "database.queryTimeout";
+	public static final String KEY_DATABASE_REPLICA_READ_YOUR_WRITES_WINDOW = "database.replica.readYourWritesWindow";
+	public static final String KEY_DATABASE_REPLICA_READS = "database.replica.reads";
+	public static final String KEY_DATABASE_REPLICA_ROUTING = "database.replica.routing";
+	public static final String KEY_DATABASE_REPLICA_URLS = "database.replica.urls";
+	public static final String KEY_DATABASE_STREAMING_FETCH_SIZE = "database.streamingFetchSize";
 	public static final String KEY_DATABASE_URL = "database.url";
 	public static final String KEY_DATABASE_USER = "database.user";
+	public static final String KEY_HTTP_BATCH_MAX_OPERATIONS = "http.batch.maxOperations";
+	public static final String KEY_HTTP_BATCH_MAX_PARALLELISM = "http.batch.maxParallelism";
 	public static final String KEY_HTTP_CACHE_CONTROL = "http.response.cacheControl";
+	public static final String KEY_HTTP_COMPRESSION_THRESHOLD = "http.response.compressionThreshold";
+	public static final String KEY_HTTP_CONCURRENCY_ADAPTIVE = "http.concurrency.adaptive";
+	public static final String KEY_HTTP_CONCURRENCY_ADAPTIVE_BACKOFF_RATIO = "http.concurrency.adaptive.backoffRatio";
+	public static final String KEY_HTTP_CONCURRENCY_ADAPTIVE_LATENCY_TOLERANCE = "http.concurrency.adaptive.latencyTolerance";
+	public static final String KEY_HTTP_CONCURRENCY_ADAPTIVE_MIN_CONCURRENT = "http.concurrency.adaptive.minConcurrent";
+	public static final String KEY_HTTP_CONCURRENCY_GLOBAL_MAX_CONCURRENT = "http.concurrency.global.maxConcurrent";
+	public static final String KEY_HTTP_CONCURRENCY_MAX_CONCURRENT = "http.concurrency.maxConcurrent";
+	public static final String KEY_HTTP_CONCURRENCY_MAX_QUEUED = "http.concurrency.maxQueued";
+	public static final String KEY_HTTP_CONCURRENCY_QUEUE_TIMEOUT = "http.concurrency.queueTimeout";
+	public static final String KEY_HTTP_CONCURRENCY_RETRY_AFTER = "http.concurrency.retryAfter";
 	public static final String KEY_HTTP_REQUEST_ATTRIBUTES = "org.restsql.core.HttpRequestAttributes";
 	public static final String KEY_JAVA_LOGGING_CONFIG = "java.util.logging.config.file";
 	public static final String KEY_LOG4J_CONFIG = "log4j.configuration";
 	public static final String KEY_LOGGING_CONFIG = "logging.config";
 	public static final String KEY_LOGGING_DIR = "logging.dir";
 	public static final String KEY_LOGGING_FACILITY = "logging.facility";
+	public static final String KEY_METADATA_DISCOVERY = "metadata.discovery";
+	public static final String KEY_METADATA_SNAPSHOT_DIR = "metadata.snapshot.dir";
+	public static final String KEY_READ_COALESCING = "read.coalescing";
 	public static final String KEY_REQUEST_FACTORY = "org.restsql.core.Factory.RequestFactory";
 	public static final String KEY_REQUEST_LOGGER = "org.restsql.core.RequestLogger";
 	public static final String KEY_REQUEST_DESERIALIZER_FACTORY = "org.restsql.core.Factory.RequestDeserializerFactory";
 	public static final String KEY_REQUEST_USE_XML_SCHEMA = "request.useXmlDirective";
+	public static final String KEY_RESPONSE_ARROW_BATCH_SIZE = "response.arrowBatchSize";
+	public static final String KEY_RESPONSE_FLUSH_INTERVAL = "response.flushInterval";
 	public static final String KEY_RESPONSE_SERIALIZER_FACTORY = "org.restsql.core.Factory.ResponseSerializerFactory";
+	public static final String KEY_RESPONSE_STREAM_XML = "response.streamXml";
 	public static final String KEY_RESPONSE_USE_XML_DIRECTIVE = "response.useXmlDirective";
 	public static final String KEY_RESPONSE_USE_XML_SCHEMA = "response.useXmlSchema";
 	public static final String KEY_RESTSQL_PROPERTIES = "org.restsql.properties";
+	public static final String KEY_SECURITY_DECISION_CACHE_SIZE = "security.decisionCache.maxSize";
+	public static final String KEY_SECURITY_DECISION_CACHE_TTL = "security.decisionCache.ttl";
 	public static final String KEY_SECURITY_PRIVILEGES = "security.privileges";
+	public static final String KEY_SECURITY_PRIVILEGES_RELOAD_INTERVAL = "security.privileges.reloadInterval";
 	public static final String KEY_SQL_BUILDER = "org.restsql.core.SqlBuilder";
 	public static final String KEY_SQL_RESOURCE_FACTORY = "org.restsql.core.Factory.SqlResourceFactory";
 	public static final String KEY_SQL_RESOURCE_METADATA = "org.restsql.core.SqlResourceMetaData";
+	public static final String KEY_SQL_STATS_MAX_FINGERPRINTS = "sql.stats.maxFingerprints";
+	public static final String KEY_SQL_STATS_SLOW_THRESHOLD = "sql.stats.slowThreshold";
+	public static final String KEY_SQL_STATS_TOP = "sql.stats.top";
 	public static final String KEY_SQLRESOURCES_DIR = "sqlresources.dir";
+	public static final String KEY_SQLRESOURCES_WATCH = "sqlresources.watch";
+	public static final String KEY_SQLRESOURCES_WATCH_DEBOUNCE = "sqlresources.watch.debounce";
+	public static final String KEY_TRIGGERS_ASYNC_QUEUE_SIZE = "triggers.async.queueSize";
+	public static final String KEY_TRIGGERS_ASYNC_THREADS = "triggers.async.threads";
 	public static final String KEY_TRIGGERS_CLASSPATH = "triggers.classpath";
 	public static final String KEY_TRIGGERS_DEFINITION = "triggers.definition";
+	public static final String KEY_WARMUP_ENABLED = "warmup.enabled";
+	public static final String KEY_WARMUP_THREADS = "warmup.threads";
 
 	public static final String NAME_LOGGER_ACCESS = "org.restsql.access";
 	public static final String NAME_LOGGER_ERROR = "org.restsql.error";
 	public static final String NAME_LOGGER_INTERNAL = "org.restsql.internal";
+	public static final String NAME_LOGGER_SLOW_SQL = "org.restsql.slowsql";
 	public static final String NAME_LOGGER_TRACE = "org.restsql.trace";
 
 	/** The internal logger, for software troubleshooting **/
@@ -20,8 +20,7 @@ public class Factory extends AbstractFactory {
 
 	/** Creates request for child record with blank params. */
 	public static Request getChildRequest(final Request parentRequest) {
-		final RequestFactory requestFactory = (RequestFactory) getInstance(Config.KEY_REQUEST_FACTORY,
-				Config.DEFAULT_REQUEST_FACTORY);
+		final RequestFactory requestFactory = (RequestFactory) Implementations.requestFactory.getInstance();
 		return requestFactory.getChildRequest(parentRequest);
 	}
 
@@ -30,10 +29,22 @@ public class Factory extends AbstractFactory {
 		return getConnectionFactory().getConnection(defaultDatabase);
 	}
 
+	/**
+	 * Returns connection for reads. Uses a replica if the connection factory routes reads to replicas, otherwise the
+	 * same connection as {@link #getConnection(String)}.
+	 */
+	public static Connection getReadConnection(final String defaultDatabase) throws SQLException {
+		final ConnectionFactory connectionFactory = getConnectionFactory();
+		if (connectionFactory instanceof ReplicaConnectionFactory) {
+			return ((ReplicaConnectionFactory) connectionFactory).getReadConnection(defaultDatabase);
+		} else {
+			return connectionFactory.getConnection(defaultDatabase);
+		}
+	}
+
 	/** Return connection factory. Useful for destroying it on app unload. */
 	public static ConnectionFactory getConnectionFactory() {
-		return (ConnectionFactory) getInstance(Config.KEY_CONNECTION_FACTORY,
-				Config.DEFAULT_CONNECTION_FACTORY);
+		return (ConnectionFactory) Implementations.connectionFactory.getInstance();
 	}
 
 	/**
@@ -47,8 +58,7 @@ public class Factory extends AbstractFactory {
 	public static HttpRequestAttributes getHttpRequestAttributes(final String client, final String method,
 			final String uri, final String requestBody, final String requestContentType,
 			final String responseContentType) {
-		HttpRequestAttributes attributes = (HttpRequestAttributes) newInstance(
-				Config.KEY_HTTP_REQUEST_ATTRIBUTES, Config.DEFAULT_HTTP_REQUEST_ATTRIBUTES);
+		HttpRequestAttributes attributes = (HttpRequestAttributes) Implementations.httpRequestAttributes.newInstance();
 		attributes.setAttributes(client, method, uri, requestBody, requestContentType, responseContentType);
 		return attributes;
 	}
@@ -70,8 +80,7 @@ public class Factory extends AbstractFactory {
 			final String sqlResource, final List<NameValuePair> resIds, final List<NameValuePair> params,
 			final List<List<NameValuePair>> childrenParams, final RequestLogger requestLogger)
 			throws InvalidRequestException {
-		final RequestFactory requestFactory = (RequestFactory) getInstance(Config.KEY_REQUEST_FACTORY,
-				Config.DEFAULT_REQUEST_FACTORY);
+		final RequestFactory requestFactory = (RequestFactory) Implementations.requestFactory.getInstance();
 		return requestFactory.getRequest(httpAttributes, type, sqlResource, resIds, params, childrenParams,
 				requestLogger);
 	}
@@ -83,14 +92,13 @@ public class Factory extends AbstractFactory {
 	 */
 	public static Request getRequest(final HttpRequestAttributes httpAttributes)
 			throws InvalidRequestException, SqlResourceFactoryException, SqlResourceException {
-		final RequestFactory requestFactory = (RequestFactory) getInstance(Config.KEY_REQUEST_FACTORY,
-				Config.DEFAULT_REQUEST_FACTORY);
+		final RequestFactory requestFactory = (RequestFactory) Implementations.requestFactory.getInstance();
 		return requestFactory.getRequest(httpAttributes);
 	}
 
 	/** Returns request logger. */
 	public static RequestLogger getRequestLogger() {
-		return (RequestLogger) newInstance(Config.KEY_REQUEST_LOGGER, Config.DEFAULT_REQUEST_LOGGER);
+		return (RequestLogger) Implementations.requestLogger.newInstance();
 	}
 
 	/**
@@ -100,8 +108,8 @@ public class Factory extends AbstractFactory {
 	 */
 	public static RequestDeserializer getRequestDeserializer(final String mediaType)
 			throws SqlResourceException {
-		final RequestDeserializerFactory rdFactory = (RequestDeserializerFactory) getInstance(
-				Config.KEY_REQUEST_DESERIALIZER_FACTORY, Config.DEFAULT_REQUEST_DESERIALIZER_FACTORY);
+		final RequestDeserializerFactory rdFactory =
+				(RequestDeserializerFactory) Implementations.requestDeserializerFactory.getInstance();
 		return rdFactory.getRequestDeserializer(mediaType);
 	}
 
@@ -112,14 +120,14 @@ public class Factory extends AbstractFactory {
 	 */
 	public static ResponseSerializer getResponseSerializer(final String mediaType)
 			throws SqlResourceException {
-		final ResponseSerializerFactory rsFactory = (ResponseSerializerFactory) getInstance(
-				Config.KEY_RESPONSE_SERIALIZER_FACTORY, Config.DEFAULT_RESPONSE_SERIALIZER_FACTORY);
+		final ResponseSerializerFactory rsFactory =
+				(ResponseSerializerFactory) Implementations.responseSerializerFactory.getInstance();
 		return rsFactory.getResponseSerializer(mediaType);
 	}
 
 	/** Creates SqlBuilder instance. */
 	public static SqlBuilder getSqlBuilder() {
-		return (SqlBuilder) getInstance(Config.KEY_SQL_BUILDER, Config.DEFAULT_SQL_BUILDER);
+		return (SqlBuilder) Implementations.sqlBuilder.getInstance();
 	}
 
 	/**
@@ -132,8 +140,8 @@ public class Factory extends AbstractFactory {
 	 */
 	public static SqlResource getSqlResource(final String resName) throws SqlResourceFactoryException,
 			SqlResourceException {
-		final SqlResourceFactory sqlResourceFactory = (SqlResourceFactory) getInstance(
-				Config.KEY_SQL_RESOURCE_FACTORY, Config.DEFAULT_SQL_RESOURCE_FACTORY);
+		final SqlResourceFactory sqlResourceFactory =
+				(SqlResourceFactory) Implementations.sqlResourceFactory.getInstance();
 		return sqlResourceFactory.getSqlResource(resName);
 	}
 
@@ -142,8 +150,8 @@ public class Factory extends AbstractFactory {
 	 */
 	public static InputStream getSqlResourceDefinition(final String resName)
 			throws SqlResourceFactoryException {
-		final SqlResourceFactory sqlResourceFactory = (SqlResourceFactory) getInstance(
-				Config.KEY_SQL_RESOURCE_FACTORY, Config.DEFAULT_SQL_RESOURCE_FACTORY);
+		final SqlResourceFactory sqlResourceFactory =
+				(SqlResourceFactory) Implementations.sqlResourceFactory.getInstance();
 		return sqlResourceFactory.getSqlResourceDefinition(resName);
 	}
 
@@ -154,15 +162,15 @@ public class Factory extends AbstractFactory {
 	 */
 	public static SqlResourceMetaData getSqlResourceMetaData(final String resName,
 			final SqlResourceDefinition definition) throws SqlResourceException {
-		final SqlResourceMetaData sqlResourceMetaData = (SqlResourceMetaData) newInstance(
-				Config.KEY_SQL_RESOURCE_METADATA, Config.DEFAULT_SQL_RESOURCE_METADATA);
+		final SqlResourceMetaData sqlResourceMetaData =
+				(SqlResourceMetaData) Implementations.sqlResourceMetaData.newInstance();
 		sqlResourceMetaData.setDefinition(resName, definition);
 		return sqlResourceMetaData;
 	}
 
 	public static String getSqlResourcesDir() {
-		final SqlResourceFactory sqlResourceFactory = (SqlResourceFactory) getInstance(
-				Config.KEY_SQL_RESOURCE_FACTORY, Config.DEFAULT_SQL_RESOURCE_FACTORY);
+		final SqlResourceFactory sqlResourceFactory =
+				(SqlResourceFactory) Implementations.sqlResourceFactory.getInstance();
 		return sqlResourceFactory.getSqlResourcesDir();
 	}
 
@@ -172,25 +180,59 @@ public class Factory extends AbstractFactory {
 	 * @throws SqlResourceFactoryException if the configured directory does not exist
 	 */
 	public static List<String> getSqlResourceNames() throws SqlResourceFactoryException {
-		final SqlResourceFactory sqlResourceFactory = (SqlResourceFactory) getInstance(
-				Config.KEY_SQL_RESOURCE_FACTORY, Config.DEFAULT_SQL_RESOURCE_FACTORY);
+		final SqlResourceFactory sqlResourceFactory =
+				(SqlResourceFactory) Implementations.sqlResourceFactory.getInstance();
 		return sqlResourceFactory.getSqlResourceNames();
 	}
 	
 	/**
-	 * Reloads definition from the source. This operation is not thread safe and should be run in development mode
-	 * only.
+	 * Resolves the configured implementation classes for all framework factories. Called by the service at startup so
+	 * that configuration errors surface immediately and no request pays for class lookup. Java API clients may call it
+	 * too, otherwise the classes are resolved on first use.
+	 *
+	 * @throws RuntimeException if an implementation class cannot be loaded
+	 */
+	public static void initialize() {
+		Implementations.sqlResourceFactory.getInstance();
+	}
+
+	/**
+	 * Reloads definition from the source. The new version replaces the old one once it is completely built.
 	 * 
 	 * @param resName resource name
 	 * @throws SqlResourceFactoryException if the definition could not be marshalled
 	 * @throws SqlResourceException if a database error occurs while collecting metadata
 	 */
 	public static void reloadSqlResource(final String resName) throws SqlResourceFactoryException, SqlResourceException {
-		final SqlResourceFactory sqlResourceFactory = (SqlResourceFactory) getInstance(
-				Config.KEY_SQL_RESOURCE_FACTORY, Config.DEFAULT_SQL_RESOURCE_FACTORY);
+		final SqlResourceFactory sqlResourceFactory =
+				(SqlResourceFactory) Implementations.sqlResourceFactory.getInstance();
 		sqlResourceFactory.reloadSqlResource(resName);
 	}
 
+	/**
+	 * Holds the helpers for the framework implementations. Resolved once, on first use of any of them, so that the
+	 * per-request factory methods do no map lookup or class loading.
+	 */
+	private static class Implementations {
+		static final FactoryHelper connectionFactory = getHelper(Config.KEY_CONNECTION_FACTORY,
+				Config.DEFAULT_CONNECTION_FACTORY);
+		static final FactoryHelper httpRequestAttributes = getHelper(Config.KEY_HTTP_REQUEST_ATTRIBUTES,
+				Config.DEFAULT_HTTP_REQUEST_ATTRIBUTES);
+		static final FactoryHelper requestDeserializerFactory = getHelper(
+				Config.KEY_REQUEST_DESERIALIZER_FACTORY, Config.DEFAULT_REQUEST_DESERIALIZER_FACTORY);
+		static final FactoryHelper requestFactory = getHelper(Config.KEY_REQUEST_FACTORY,
+				Config.DEFAULT_REQUEST_FACTORY);
+		static final FactoryHelper requestLogger = getHelper(Config.KEY_REQUEST_LOGGER,
+				Config.DEFAULT_REQUEST_LOGGER);
+		static final FactoryHelper responseSerializerFactory = getHelper(
+				Config.KEY_RESPONSE_SERIALIZER_FACTORY, Config.DEFAULT_RESPONSE_SERIALIZER_FACTORY);
+		static final FactoryHelper sqlBuilder = getHelper(Config.KEY_SQL_BUILDER, Config.DEFAULT_SQL_BUILDER);
+		static final FactoryHelper sqlResourceFactory = getHelper(Config.KEY_SQL_RESOURCE_FACTORY,
+				Config.DEFAULT_SQL_RESOURCE_FACTORY);
+		static final FactoryHelper sqlResourceMetaData = getHelper(Config.KEY_SQL_RESOURCE_METADATA,
+				Config.DEFAULT_SQL_RESOURCE_METADATA);
+	}
+
 	// Factory Interfaces
 
 	/** Creates JDBC connection objects. */
@@ -200,6 +242,11 @@ public class Factory extends AbstractFactory {
 		public Connection getConnection(String defaultDatabase) throws SQLException;
 	}
 
+	/** Creates JDBC connection objects, routing reads to replicas of the primary database. */
+	public interface ReplicaConnectionFactory extends ConnectionFactory {
+		public Connection getReadConnection(String defaultDatabase) throws SQLException;
+	}
+
 	/** Creates Request objects. */
 	public interface RequestFactory {
 		public Request getChildRequest(final Request parentRequest);
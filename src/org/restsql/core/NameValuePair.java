@@ -98,11 +98,17 @@ public class NameValuePair {
 		}
 	}
 
-	/** Creates object with equals operator. Used for request resource identifiers and body object attributes. */
+	/**
+	 * Creates object with the given operator, Equals or In, without parsing value for it. Used for request resource
+	 * identifiers and body object attributes.
+	 */
 	public NameValuePair(final String name, final String value, final Operator operator) {
 		this.name = name;
 		this.value = value;
-		this.operator = Operator.Equals;
+		this.operator = operator;
+		if (operator == Operator.In) {
+			this.inValues = parseInValues(value);
+		}
 	}
 
 	/** Returns the In list values. **/
@@ -0,0 +1,16 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+/**
+ * Exception is thrown when a statement exceeds its query timeout or is cancelled while executing.
+ *
+ * @author Mark Sawers
+ */
+public class QueryTimeoutException extends SqlResourceException {
+	private static final long serialVersionUID = 1L;
+
+	/** Creates exception from the driver's exception and the SQL. */
+	public QueryTimeoutException(final Throwable cause, final String sql) {
+		super(cause, sql);
+	}
+}
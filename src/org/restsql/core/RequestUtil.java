@@ -22,10 +22,18 @@ public class RequestUtil {
 	static {
 		supportedMediaTypes.add("application/x-www-form-urlencoded");
 		supportedMediaTypes.add("application/json");
+		supportedMediaTypes.add("application/x-ndjson");
+		supportedMediaTypes.add("text/csv");
+		supportedMediaTypes.add("application/x-msgpack");
+		supportedMediaTypes.add("application/vnd.apache.arrow.stream");
 		supportedMediaTypes.add("application/xml");
 	}
 
-	/** Converts short form of media type to the proper internet standard, e.g. json to application/json. */
+	/**
+	 * Converts short form of media type to the proper internet standard, e.g. json to application/json, ndjson to
+	 * application/x-ndjson, csv to text/csv, msgpack to application/x-msgpack or arrow to
+	 * application/vnd.apache.arrow.stream.
+	 */
 	public static String convertToStandardInternetMediaType(final String mediaType) {
 		if (mediaType == null) {
 			return null;
@@ -33,13 +41,28 @@ public class RequestUtil {
 			return "application/xml";
 		} else if (mediaType.equalsIgnoreCase("json")) {
 			return "application/json";
+		} else if (mediaType.equalsIgnoreCase("ndjson")) {
+			return "application/x-ndjson";
+		} else if (mediaType.equalsIgnoreCase("csv")) {
+			return "text/csv";
+		} else if (mediaType.equalsIgnoreCase("msgpack")) {
+			return "application/x-msgpack";
+		} else if (mediaType.equalsIgnoreCase("arrow")) {
+			return "application/vnd.apache.arrow.stream";
 		} else {
 			return mediaType;
 		}
 	}
 
-	/** Returns name-value pairs, resourceId and value, for given resource and ordered value array. */
-	public static List<NameValuePair> getResIds(final SqlResource sqlResource, final String[] values) {
+	/**
+	 * Returns name-value pairs, resourceId and value, for given resource and ordered value array. A value enclosed in
+	 * brackets, e.g. <code>(1,2,3)</code>, is a list of identifiers and uses the In operator. Commas in a list value may
+	 * be escaped with a backslash.
+	 * 
+	 * @throws InvalidRequestException if a list is empty
+	 */
+	public static List<NameValuePair> getResIds(final SqlResource sqlResource, final String[] values)
+			throws InvalidRequestException {
 		List<NameValuePair> resIds = null;
 		if (values != null) {
 			resIds = new ArrayList<NameValuePair>(values.length);
@@ -49,7 +72,11 @@ public class RequestUtil {
 						for (final String value : values) {
 							if (value != null) {
 								final NameValuePair resId = new NameValuePair(column.getColumnLabel(), value,
-										Operator.Equals);
+										isInList(value) ? Operator.In : Operator.Equals);
+								if (resId.getOperator() == Operator.In && resId.getInValues().isEmpty()) {
+									throw new InvalidRequestException("Resource identifier list " + value
+											+ " is empty");
+								}
 								resIds.add(resId);
 							}
 						}
@@ -165,4 +192,9 @@ public class RequestUtil {
 			}
 		}
 	}
+
+	/** Returns true if the resource identifier value is a bracketed list. */
+	private static boolean isInList(final String value) {
+		return value.length() > 1 && value.charAt(0) == '(' && value.charAt(value.length() - 1) == ')';
+	}
 }
@@ -1,6 +1,7 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core;
 
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 
@@ -59,6 +60,19 @@ public interface SqlResource {
 	 */
 	public String read(final Request request, final String mediaType) throws SqlResourceException;
 
+	/**
+	 * Executes query writing results to the writer as rows are read, for media types with a
+	 * {@link StreamingResponseSerializer}.
+	 * 
+	 * @param request Request object
+	 * @param mediaType response format, use internet media type e.g. application/x-ndjson
+	 * @param writer output
+	 * @throws SqlResourceException if the media type cannot be streamed, a database access error occurs or the writer
+	 *             fails
+	 */
+	public void read(final Request request, final String mediaType, final Writer writer)
+			throws SqlResourceException;
+
 	/**
 	 * Executes insert, update or delete.
 	 * 
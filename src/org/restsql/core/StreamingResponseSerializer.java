@@ -0,0 +1,26 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converts read results to a writer as rows are read from the result set, so that responses need not be held in
+ * memory and clients may process rows as they arrive. Used by the service for reads in the serializer's media type.
+ *
+ * @author Mark Sawers
+ */
+public interface StreamingResponseSerializer extends ResponseSerializer {
+
+	/**
+	 * Writes flat or hierarchical select results, flushing the writer every <code>response.flushInterval</code> rows.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param writer output
+	 */
+	public void serializeRead(final SqlResource sqlResource, final ResultSet resultSet, final Writer writer)
+			throws SQLException, IOException;
+}
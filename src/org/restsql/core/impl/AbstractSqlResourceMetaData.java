@@ -9,12 +9,14 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -37,17 +39,21 @@ import org.restsql.core.sqlresource.Table;
 
 /**
  * Represents meta data for sql resource. Queries database for table and column meta data and primary and foreign keys.
+ * If meta data snapshots are enabled, loads the meta data from the resource's snapshot when it matches the definition
+ * and the catalog columns and primary keys of its tables, and otherwise writes a new snapshot after querying the
+ * database.
  * 
  * @todo Read-only columns do not work with PostgreSQL
  * @author Mark Sawers
  */
 @XmlRootElement(name = "sqlResourceMetaData", namespace = "http://restsql.org/schema")
 @XmlType(name = "SqlResourceMetaData", namespace = "http://restsql.org/schema", propOrder = { "resName",
-		"hierarchical", "multipleDatabases", "tables", "parentTableName", "childTableName", "joinTableName",
-		"parentPlusExtTableNames", "childPlusExtTableNames", "joinTableNames", "allReadColumnNames",
-		"parentReadColumnNames", "childReadColumnNames" })
+		"hierarchical", "multipleDatabases", "definitionChecksum", "catalogChecksum", "tables", "parentTableName",
+		"childTableName", "joinTableName", "parentPlusExtTableNames", "childPlusExtTableNames", "joinTableNames",
+		"allReadColumnNames", "parentReadColumnNames", "childReadColumnNames" })
 public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData {
 	private static final int DEFAULT_NUMBER_DATABASES = 5;
+	private static final String DISCOVERY_BULK = "bulk";
 	private static final int DEFAULT_NUMBER_TABLES = 10;
 
 	@SuppressWarnings("unused")
@@ -58,6 +64,9 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 	@XmlTransient
 	private List<ColumnMetaData> allReadColumns;
 
+	@XmlAttribute
+	private String catalogChecksum;
+
 	@SuppressWarnings("unused")
 	@XmlElementWrapper(name = "childPlusExtTables", required = true)
 	@XmlElement(name = "table")
@@ -84,6 +93,9 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 	@XmlTransient
 	private SqlResourceDefinition definition;
 
+	@XmlAttribute
+	private String definitionChecksum;
+
 	@XmlTransient
 	private boolean extendedMetadataIsBuilt;
 
@@ -142,6 +154,9 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 	@XmlElement(name = "table", type = TableMetaDataImpl.class, required = true)
 	private List<TableMetaData> tables;
 
+	@XmlTransient
+	private volatile String xml;
+
 	// Public methods to retrieve metadata
 
 	@Override
@@ -228,8 +243,26 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 		Connection connection = null;
 		String sql = null;
 		SqlResourceDefinitionUtils.validate(definition);
+
+		String checksum = null;
+		AbstractSqlResourceMetaData snapshot = null;
+		if (SqlResourceMetaDataSnapshot.isEnabled()) {
+			checksum = SqlResourceMetaDataSnapshot.getChecksum(definition, getClass());
+			snapshot = SqlResourceMetaDataSnapshot.load(resName, checksum, getClass());
+		}
+
 		try {
 			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
+			if (snapshot != null) {
+				// Validate snapshot against the tables in the database, which may have been altered
+				if (getCatalogChecksum(connection, snapshot.tables).equals(snapshot.catalogChecksum)) {
+					setSnapshot(snapshot);
+					return;
+				}
+				if (Config.logger.isInfoEnabled()) {
+					Config.logger.info("Meta data snapshot for " + resName + " does not match the database catalog");
+				}
+			}
 			final Statement statement = connection.createStatement();
 			sql = getSqlMainQuery(definition);
 			if (Config.logger.isDebugEnabled()) {
@@ -240,9 +273,15 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 			buildTablesAndColumns(resultSet, connection);
 			resultSet.close();
 			statement.close();
+			if (isBulkDiscovery()) {
+				loadCatalog(connection, tables);
+			}
 			buildPrimaryKeys(connection);
 			buildInvisibleForeignKeys(connection);
 			buildJoinTableMetadata(connection);
+			if (checksum != null) {
+				catalogChecksum = getCatalogChecksum(connection, tables);
+			}
 		} catch (final SQLException exception) {
 			throw new SqlResourceException(exception, sql);
 		} finally {
@@ -254,34 +293,46 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 			}
 		}
 		hierarchical = getChild() != null;
+
+		if (checksum != null) {
+			definitionChecksum = checksum;
+			buildExtendedMetadata();
+			SqlResourceMetaDataSnapshot.save(this);
+		}
 	}
 
-	/** Returns XML representation. */
+	/** Returns XML representation. The meta data is immutable once built, so the XML is rendered once. */
 	@Override
 	public String toXml() {
-		// Build extended metadata for serialization if first time through
-		if (!extendedMetadataIsBuilt) {
-			parentTableName = getQualifiedTableName(parentTable);
-			childTableName = getQualifiedTableName(childTable);
-			joinTableName = getQualifiedTableName(joinTable);
-			parentPlusExtTableNames = getQualifiedTableNames(parentPlusExtTables);
-			childPlusExtTableNames = getQualifiedTableNames(childPlusExtTables);
-			allReadColumnNames = getQualifiedColumnNames(allReadColumns);
-			childReadColumnNames = getQualifiedColumnNames(childReadColumns);
-			parentReadColumnNames = getQualifiedColumnNames(parentReadColumns);
-			extendedMetadataIsBuilt = true;
+		String result = xml;
+		if (result == null) {
+			buildExtendedMetadata();
+			try {
+				final JaxbPool pool = JaxbPool.getPool(AbstractSqlResourceMetaData.class);
+				final Marshaller marshaller = pool.acquireMarshaller();
+				final StringWriter writer = new StringWriter();
+				try {
+					marshaller.marshal(this, writer);
+				} finally {
+					pool.release(marshaller);
+				}
+				xml = result = writer.toString();
+			} catch (final JAXBException exception) {
+				return exception.toString();
+			}
 		}
+		return result;
+	}
 
-		try {
-			final JAXBContext context = JAXBContext.newInstance(AbstractSqlResourceMetaData.class);
-			final Marshaller marshaller = context.createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			final StringWriter writer = new StringWriter();
-			marshaller.marshal(this, writer);
-			return writer.toString();
-		} catch (final JAXBException exception) {
-			return exception.toString();
-		}
+	// Package methods for snapshots
+
+	/** Returns checksum of the definition the meta data was built from, if it was built for a snapshot. */
+	String getDefinitionChecksum() {
+		return definitionChecksum;
+	}
+
+	String getResName() {
+		return resName;
 	}
 
 	// Protected methods for database-specific implementation
@@ -340,48 +391,84 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 	 */
 	protected abstract String getSqlPkQuery();
 
+	/**
+	 * Retrieves sql for querying columns of several tables in one database. The first parameter is the database name
+	 * followed by one parameter per table name. Result columns are table name, column name, data type and optionally
+	 * schema name. Hook method for bulk discovery; returns null to use per-table queries.
+	 */
+	protected String getSqlBulkColumnsQuery(final int tableCount) {
+		return null;
+	}
+
+	/**
+	 * Retrieves sql for querying primary keys of several tables in one database, with parameters as in
+	 * {@link #getSqlBulkColumnsQuery(int)}. Result columns are table name and column name. Hook method for bulk
+	 * discovery; returns null to use per-table queries.
+	 */
+	protected String getSqlBulkPkQuery(final int tableCount) {
+		return null;
+	}
+
+	/** Returns comma separated list of the given number of parameter markers, for bulk query IN lists. */
+	protected static String getParameterList(final int count) {
+		final StringBuilder list = new StringBuilder(count * 3);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				list.append(", ");
+			}
+			list.append('?');
+		}
+		return list.toString();
+	}
+
+	/** Returns schema name from the catalog cache, or null if the table is not cached. */
+	protected String getCachedSchemaName(final String databaseName, final String tableName) {
+		final CatalogCache.CatalogTable table = CatalogCache.get(databaseName, tableName);
+		return table == null ? null : table.getSchemaName();
+	}
+
+	/** Builds extended metadata for serialization if first time through. */
+	private void buildExtendedMetadata() {
+		if (!extendedMetadataIsBuilt) {
+			parentTableName = getQualifiedTableName(parentTable);
+			childTableName = getQualifiedTableName(childTable);
+			joinTableName = getQualifiedTableName(joinTable);
+			parentPlusExtTableNames = getQualifiedTableNames(parentPlusExtTables);
+			childPlusExtTableNames = getQualifiedTableNames(childPlusExtTables);
+			allReadColumnNames = getQualifiedColumnNames(allReadColumns);
+			childReadColumnNames = getQualifiedColumnNames(childReadColumns);
+			parentReadColumnNames = getQualifiedColumnNames(parentReadColumns);
+			extendedMetadataIsBuilt = true;
+		}
+	}
+
 	private void buildInvisibleForeignKeys(final Connection connection) throws SQLException {
-		final PreparedStatement statement = connection.prepareStatement(getSqlColumnsQuery());
-		ResultSet resultSet = null;
-		try {
-			for (final TableMetaData table : tables) {
-				if (!table.isParent()) {
-					statement.setString(1, table.getDatabaseName());
-					statement.setString(2, table.getTableName());
-					resultSet = statement.executeQuery();
-					while (resultSet.next()) {
-						final String columnName = resultSet.getString(1);
-						if (!table.getColumns().containsKey(columnName)) {
-							TableMetaData mainTable;
-							switch (table.getTableRole()) {
-								case ChildExtension:
-									mainTable = childTable;
-									break;
-								default: // Child, ParentExtension, Unknown
-									mainTable = parentTable;
-							}
-							// Look for a pk on the main table with the same name
-							for (final ColumnMetaData pk : mainTable.getPrimaryKeys()) {
-								if (columnName.equals(pk.getColumnName())) {
-									final ColumnMetaDataImpl fkColumn = new ColumnMetaDataImpl(
-											table.getDatabaseName(), table.getQualifiedTableName(),
-											table.getTableName(), table.getTableRole(), columnName,
-											pk.getColumnLabel(), resultSet.getString(2), this);
-									((TableMetaDataImpl) table).addColumn(fkColumn);
-								}
+		for (final TableMetaData table : tables) {
+			if (!table.isParent()) {
+				for (final String[] catalogColumn : getCatalogColumns(connection, table.getDatabaseName(),
+						table.getTableName())) {
+					final String columnName = catalogColumn[0];
+					if (!table.getColumns().containsKey(columnName)) {
+						TableMetaData mainTable;
+						switch (table.getTableRole()) {
+							case ChildExtension:
+								mainTable = childTable;
+								break;
+							default: // Child, ParentExtension, Unknown
+								mainTable = parentTable;
+						}
+						// Look for a pk on the main table with the same name
+						for (final ColumnMetaData pk : mainTable.getPrimaryKeys()) {
+							if (columnName.equals(pk.getColumnName())) {
+								final ColumnMetaDataImpl fkColumn = new ColumnMetaDataImpl(table.getDatabaseName(),
+										table.getQualifiedTableName(), table.getTableName(), table.getTableRole(),
+										columnName, pk.getColumnLabel(), catalogColumn[1], this);
+								((TableMetaDataImpl) table).addColumn(fkColumn);
 							}
 						}
 					}
 				}
 			}
-		} catch (final SQLException exception) {
-			if (resultSet != null) {
-				resultSet.close();
-			}
-			if (statement != null) {
-				statement.close();
-			}
-			throw exception;
 		}
 	}
 
@@ -389,17 +476,9 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 		// Join table could have been idenitfied in buildTablesAndColumns(), but not always
 		final Table joinDef = SqlResourceDefinitionUtils.getTable(definition, TableRole.Join);
 		if (joinDef != null && joinTable == null) {
-			// Determine table and database name
-			String tableName, databaseName;
-			final String possiblyQualifiedTableName = joinDef.getName();
-			final int dotIndex = possiblyQualifiedTableName.indexOf('.');
-			if (dotIndex > 0) {
-				tableName = possiblyQualifiedTableName.substring(0, dotIndex);
-				databaseName = possiblyQualifiedTableName.substring(dotIndex + 1);
-			} else {
-				tableName = possiblyQualifiedTableName;
-				databaseName = SqlResourceDefinitionUtils.getDefaultDatabase(definition);
-			}
+			final String[] names = getDatabaseAndTableName(joinDef);
+			final String databaseName = names[0];
+			final String tableName = names[1];
 
 			final String qualifiedTableName = getQualifiedTableName(connection, databaseName, tableName);
 
@@ -410,29 +489,11 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 			joinList = new ArrayList<TableMetaData>(1);
 			joinList.add(joinTable);
 
-			// Execute metadata query and populate metadata structure
-			PreparedStatement statement = null;
-			ResultSet resultSet = null;
-			try {
-				statement = connection.prepareStatement(getSqlColumnsQuery());
-				statement.setString(1, databaseName);
-				statement.setString(2, tableName);
-				resultSet = statement.executeQuery();
-				while (resultSet.next()) {
-					final String columnName = resultSet.getString(1);
-					final ColumnMetaDataImpl column = new ColumnMetaDataImpl(databaseName,
-							qualifiedTableName, tableName, TableRole.Join, columnName, columnName,
-							resultSet.getString(2), this);
-					((TableMetaDataImpl) joinTable).addColumn(column);
-				}
-			} catch (final SQLException exception) {
-				if (resultSet != null) {
-					resultSet.close();
-				}
-				if (statement != null) {
-					statement.close();
-				}
-				throw exception;
+			// Populate metadata structure from catalog
+			for (final String[] catalogColumn : getCatalogColumns(connection, databaseName, tableName)) {
+				final ColumnMetaDataImpl column = new ColumnMetaDataImpl(databaseName, qualifiedTableName,
+						tableName, TableRole.Join, catalogColumn[0], catalogColumn[0], catalogColumn[1], this);
+				((TableMetaDataImpl) joinTable).addColumn(column);
 			}
 		}
 	}
@@ -444,31 +505,199 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 	 * @throws SqlResourceException if a database access error occurs
 	 */
 	private void buildPrimaryKeys(final Connection connection) throws SQLException {
-		final PreparedStatement statement = connection.prepareStatement(getSqlPkQuery());
+		for (final TableMetaData table : tables) {
+			for (final String columnName : getCatalogPrimaryKeys(connection, table.getDatabaseName(),
+					table.getTableName())) {
+				for (final ColumnMetaData column : table.getColumns().values()) {
+					if (columnName.equals(column.getColumnName())) {
+						((ColumnMetaDataImpl) column).setPrimaryKey(true);
+						((TableMetaDataImpl) table).addPrimaryKey(column);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns checksum of the catalog columns, data types and primary keys of the tables. Rows are sorted, since the
+	 * catalog queries do not guarantee an order.
+	 */
+	private String getCatalogChecksum(final Connection connection, final List<TableMetaData> tables)
+			throws SQLException {
+		if (isBulkDiscovery()) {
+			loadCatalog(connection, tables);
+		}
+		final StringBuilder catalog = new StringBuilder(1000);
+		final List<String> rows = new ArrayList<String>();
+		for (final TableMetaData table : tables) {
+			catalog.append(table.getDatabaseName());
+			catalog.append('.');
+			catalog.append(table.getTableName());
+			catalog.append('\n');
+			rows.clear();
+			for (final String[] column : getCatalogColumns(connection, table.getDatabaseName(),
+					table.getTableName())) {
+				rows.add(column[0] + ' ' + column[1]);
+			}
+			for (final String columnName : getCatalogPrimaryKeys(connection, table.getDatabaseName(),
+					table.getTableName())) {
+				rows.add(columnName + " pk");
+			}
+			Collections.sort(rows);
+			for (final String row : rows) {
+				catalog.append(row);
+				catalog.append('\n');
+			}
+		}
+		return SqlResourceMetaDataSnapshot.digest(catalog);
+	}
+
+	/**
+	 * Returns list of [column name, data type] of a table, from the catalog cache in bulk discovery mode or else with
+	 * the per-table query.
+	 */
+	private List<String[]> getCatalogColumns(final Connection connection, final String databaseName,
+			final String tableName) throws SQLException {
+		final CatalogCache.CatalogTable table = isBulkDiscovery() ? CatalogCache.get(databaseName, tableName)
+				: null;
+		if (table != null) {
+			return table.getColumns();
+		}
+		final List<String[]> columns = new ArrayList<String[]>();
+		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			for (final TableMetaData table : tables) {
-				statement.setString(1, table.getDatabaseName());
-				statement.setString(2, table.getTableName());
+			statement = connection.prepareStatement(getSqlColumnsQuery());
+			statement.setString(1, databaseName);
+			statement.setString(2, tableName);
+			resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				columns.add(new String[] { resultSet.getString(1), resultSet.getString(2) });
+			}
+		} finally {
+			if (resultSet != null) {
+				resultSet.close();
+			}
+			if (statement != null) {
+				statement.close();
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Returns primary key column names of a table, from the catalog cache in bulk discovery mode or else with the
+	 * per-table query.
+	 */
+	private List<String> getCatalogPrimaryKeys(final Connection connection, final String databaseName,
+			final String tableName) throws SQLException {
+		final CatalogCache.CatalogTable table = isBulkDiscovery() ? CatalogCache.get(databaseName, tableName)
+				: null;
+		if (table != null) {
+			return table.getPrimaryKeys();
+		}
+		final List<String> primaryKeys = new ArrayList<String>();
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		try {
+			statement = connection.prepareStatement(getSqlPkQuery());
+			statement.setString(1, databaseName);
+			statement.setString(2, tableName);
+			resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				primaryKeys.add(resultSet.getString(1));
+			}
+		} finally {
+			if (resultSet != null) {
+				resultSet.close();
+			}
+			if (statement != null) {
+				statement.close();
+			}
+		}
+		return primaryKeys;
+	}
+
+	/** Returns database and table name of the table definition, which may be qualified. */
+	private String[] getDatabaseAndTableName(final Table tableDef) {
+		final String possiblyQualifiedTableName = tableDef.getName();
+		final int dotIndex = possiblyQualifiedTableName.indexOf('.');
+		if (dotIndex > 0) {
+			return new String[] { possiblyQualifiedTableName.substring(dotIndex + 1),
+					possiblyQualifiedTableName.substring(0, dotIndex) };
+		} else {
+			return new String[] { SqlResourceDefinitionUtils.getDefaultDatabase(definition),
+					possiblyQualifiedTableName };
+		}
+	}
+
+	private boolean isBulkDiscovery() {
+		return getSqlBulkColumnsQuery(1) != null
+				&& Config.properties.getProperty(Config.KEY_METADATA_DISCOVERY, Config.DEFAULT_METADATA_DISCOVERY)
+						.equals(DISCOVERY_BULK);
+	}
+
+	/**
+	 * Loads columns and primary keys of the tables, plus the definition's join table, that are not yet in the catalog
+	 * cache, with one columns query and one primary key query per database.
+	 */
+	private void loadCatalog(final Connection connection, final List<TableMetaData> tables) throws SQLException {
+		final Map<String, Set<String>> databaseTables = new HashMap<String, Set<String>>(DEFAULT_NUMBER_DATABASES);
+		for (final TableMetaData table : tables) {
+			addUncachedTable(databaseTables, table.getDatabaseName(), table.getTableName());
+		}
+		final Table joinDef = SqlResourceDefinitionUtils.getTable(definition, TableRole.Join);
+		if (joinDef != null && joinTable == null) {
+			final String[] names = getDatabaseAndTableName(joinDef);
+			addUncachedTable(databaseTables, names[0], names[1]);
+		}
+
+		for (final Map.Entry<String, Set<String>> entry : databaseTables.entrySet()) {
+			final String databaseName = entry.getKey();
+			// Catalog may return names in a different case than requested
+			final Map<String, CatalogCache.CatalogTable> catalogTables = new HashMap<String, CatalogCache.CatalogTable>();
+			for (final String tableName : entry.getValue()) {
+				catalogTables.put(tableName.toLowerCase(), new CatalogCache.CatalogTable());
+			}
+			final List<String> tableNames = new ArrayList<String>(entry.getValue());
+			PreparedStatement statement = null;
+			ResultSet resultSet = null;
+			try {
+				statement = prepareBulkStatement(connection, getSqlBulkColumnsQuery(tableNames.size()),
+						databaseName, tableNames);
 				resultSet = statement.executeQuery();
+				final boolean hasSchema = resultSet.getMetaData().getColumnCount() > 3;
 				while (resultSet.next()) {
-					final String columnName = resultSet.getString(1);
-					for (final ColumnMetaData column : table.getColumns().values()) {
-						if (columnName.equals(column.getColumnName())) {
-							((ColumnMetaDataImpl) column).setPrimaryKey(true);
-							((TableMetaDataImpl) table).addPrimaryKey(column);
+					final CatalogCache.CatalogTable table = catalogTables.get(resultSet.getString(1).toLowerCase());
+					if (table != null) {
+						table.addColumn(resultSet.getString(2), resultSet.getString(3));
+						if (hasSchema) {
+							table.setSchemaName(resultSet.getString(4));
 						}
 					}
 				}
-			}
-		} catch (final SQLException exception) {
-			if (resultSet != null) {
 				resultSet.close();
-			}
-			if (statement != null) {
 				statement.close();
+				statement = prepareBulkStatement(connection, getSqlBulkPkQuery(tableNames.size()), databaseName,
+						tableNames);
+				resultSet = statement.executeQuery();
+				while (resultSet.next()) {
+					final CatalogCache.CatalogTable table = catalogTables.get(resultSet.getString(1).toLowerCase());
+					if (table != null) {
+						table.addPrimaryKey(resultSet.getString(2));
+					}
+				}
+			} finally {
+				if (resultSet != null) {
+					resultSet.close();
+				}
+				if (statement != null) {
+					statement.close();
+				}
+			}
+			for (final String tableName : tableNames) {
+				CatalogCache.put(databaseName, tableName, catalogTables.get(tableName.toLowerCase()));
 			}
-			throw exception;
 		}
 	}
 
@@ -579,6 +808,101 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 		multipleDatabases = databases.size() > 1;
 	}
 
+	/**
+	 * Copies serialized state from a snapshot and rebuilds the table and column references the way
+	 * {@link #buildTablesAndColumns(ResultSet, Connection)} and {@link #buildJoinTableMetadata(Connection)} do.
+	 */
+	private void setSnapshot(final AbstractSqlResourceMetaData snapshot) {
+		catalogChecksum = snapshot.catalogChecksum;
+		definitionChecksum = snapshot.definitionChecksum;
+		hierarchical = snapshot.hierarchical;
+		multipleDatabases = snapshot.multipleDatabases;
+		tables = snapshot.tables;
+
+		tableMap = new HashMap<String, TableMetaData>(tables.size());
+		childPlusExtTables = new ArrayList<TableMetaData>(DEFAULT_NUMBER_TABLES);
+		parentPlusExtTables = new ArrayList<TableMetaData>(DEFAULT_NUMBER_TABLES);
+		final List<ColumnMetaData> readColumns = new ArrayList<ColumnMetaData>();
+		for (final TableMetaData table : tables) {
+			tableMap.put(table.getQualifiedTableName(), table);
+			switch (table.getTableRole()) {
+				case Parent:
+					parentTable = table;
+					parentPlusExtTables.add(table);
+					break;
+				case ParentExtension:
+					parentPlusExtTables.add(table);
+					break;
+				case Child:
+					childTable = table;
+					childPlusExtTables.add(table);
+					break;
+				case ChildExtension:
+					childPlusExtTables.add(table);
+					break;
+				case Join:
+					joinTable = table;
+					joinList = new ArrayList<TableMetaData>(1);
+					joinList.add(joinTable);
+					break;
+				default: // Unknown
+			}
+			for (final ColumnMetaData column : table.getColumns().values()) {
+				((ColumnMetaDataImpl) column).setSqlResourceMetaData(this);
+				if (column.getColumnNumber() > 0) {
+					readColumns.add(column);
+				}
+			}
+		}
+
+		// Read columns are in select column order
+		Collections.sort(readColumns, new Comparator<ColumnMetaData>() {
+			@Override
+			public int compare(final ColumnMetaData column1, final ColumnMetaData column2) {
+				return column1.getColumnNumber() - column2.getColumnNumber();
+			}
+		});
+		allReadColumns = readColumns;
+		parentReadColumns = new ArrayList<ColumnMetaData>(readColumns.size());
+		childReadColumns = new ArrayList<ColumnMetaData>(readColumns.size());
+		for (final ColumnMetaData column : readColumns) {
+			switch (column.getTableRole()) {
+				case Parent:
+				case ParentExtension:
+					parentReadColumns.add(column);
+					break;
+				case Child:
+				case ChildExtension:
+					childReadColumns.add(column);
+					break;
+				default: // Join, Unknown
+			}
+		}
+		buildExtendedMetadata();
+	}
+
+	private static void addUncachedTable(final Map<String, Set<String>> databaseTables, final String databaseName,
+			final String tableName) {
+		if (CatalogCache.get(databaseName, tableName) == null) {
+			Set<String> tableNames = databaseTables.get(databaseName);
+			if (tableNames == null) {
+				tableNames = new HashSet<String>();
+				databaseTables.put(databaseName, tableNames);
+			}
+			tableNames.add(tableName);
+		}
+	}
+
+	private static PreparedStatement prepareBulkStatement(final Connection connection, final String sql,
+			final String databaseName, final List<String> tableNames) throws SQLException {
+		final PreparedStatement statement = connection.prepareStatement(sql);
+		statement.setString(1, databaseName);
+		for (int i = 0; i < tableNames.size(); i++) {
+			statement.setString(i + 2, tableNames.get(i));
+		}
+		return statement;
+	}
+
 	private List<String> getQualifiedColumnNames(final List<ColumnMetaData> columns) {
 		if (columns != null) {
 			final List<String> names = new ArrayList<String>(columns.size());
@@ -0,0 +1,177 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.restsql.core.BinaryFormat;
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Config;
+import org.restsql.core.SqlResource;
+import org.restsql.core.StreamingResponseSerializer;
+
+/**
+ * Converts read/write results to an Apache Arrow IPC stream, in a binary string. Rows are collected into typed column
+ * vectors and written as a record batch every <code>response.arrowBatchSize</code> rows, so streamed reads reach the
+ * client batch by batch. Hierarchical results are flattened to a row per child as in the CSV format. Write results are
+ * a single row with a rowsAffected column. See {@link ArrowStreamOutput} for the column types.
+ *
+ * @author Mark Sawers
+ */
+public class ArrowResponseSerializer implements StreamingResponseSerializer, BinaryFormat {
+	private final int batchSize = Math.max(1, Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_RESPONSE_ARROW_BATCH_SIZE, Config.DEFAULT_RESPONSE_ARROW_BATCH_SIZE)));
+
+	@Override
+	public String getSupportedMediaType() {
+		return "application/vnd.apache.arrow.stream";
+	}
+
+	/**
+	 * Writes schema and flat or flattened hierarchical select results in record batches as they are read.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param writer output
+	 */
+	@Override
+	public void serializeRead(final SqlResource sqlResource, final ResultSet resultSet, final Writer writer)
+			throws SQLException, IOException {
+		final List<ColumnMetaData> columns = getColumns(sqlResource);
+		final ArrowStreamOutput output = new ArrowStreamOutput(writer);
+		for (final ColumnMetaData column : columns) {
+			output.addColumn(column.getColumnLabel(), column.getColumnType(), column.getColumnTypeName());
+		}
+		output.writeSchema();
+		while (resultSet.next()) {
+			output.readRow(resultSet, columns);
+			if (output.getRowCount() == batchSize) {
+				output.writeBatch();
+				writer.flush();
+			}
+		}
+		if (output.getRowCount() > 0) {
+			output.writeBatch();
+		}
+		output.writeEnd();
+	}
+
+	/**
+	 * Converts flat select results to an Arrow stream.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @return binary string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
+			throws SQLException {
+		final StringWriter writer = new StringWriter(1000);
+		try {
+			serializeRead(sqlResource, resultSet, writer);
+		} catch (final IOException exception) {
+			// Not thrown by StringWriter
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Converts hierarchical select results to a flattened Arrow stream.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param results results
+	 * @return binary string
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public String serializeReadHierarchical(final SqlResource sqlResource,
+			final List<Map<String, Object>> results) {
+		final List<ColumnMetaData> columns = getColumns(sqlResource);
+		final String childRowElementName = sqlResource.getMetaData().getChild().getTableAlias() + "s";
+		final StringWriter writer = new StringWriter(results.size() * 100);
+		final ArrowStreamOutput output = new ArrowStreamOutput(writer);
+		for (final ColumnMetaData column : columns) {
+			output.addColumn(column.getColumnLabel(), column.getColumnType(), column.getColumnTypeName());
+		}
+		try {
+			output.writeSchema();
+			for (final Map<String, Object> parentRow : results) {
+				final List<Map<String, Object>> childRows = (List<Map<String, Object>>) parentRow
+						.get(childRowElementName);
+				if (childRows.size() == 0) {
+					output.addRow(getRowValues(columns, parentRow, null));
+				} else {
+					for (final Map<String, Object> childRow : childRows) {
+						output.addRow(getRowValues(columns, parentRow, childRow));
+					}
+				}
+				if (output.getRowCount() == batchSize) {
+					output.writeBatch();
+				}
+			}
+			if (output.getRowCount() > 0) {
+				output.writeBatch();
+			}
+			output.writeEnd();
+		} catch (final IOException exception) {
+			// Not thrown by StringWriter
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Converts write results to an Arrow stream.
+	 *
+	 * @param rowsAffected rows affected
+	 */
+	@Override
+	public String serializeWrite(final int rowsAffected) {
+		final StringWriter writer = new StringWriter(500);
+		final ArrowStreamOutput output = new ArrowStreamOutput(writer);
+		output.addColumn("rowsAffected", Types.BIGINT, "BIGINT");
+		output.addRow(Long.valueOf(rowsAffected));
+		try {
+			output.writeSchema();
+			output.writeBatch();
+			output.writeEnd();
+		} catch (final IOException exception) {
+			// Not thrown by StringWriter
+		}
+		return writer.toString();
+	}
+
+	// Private utils
+
+	/** Returns read columns, skipping nonqueried foreign keys. */
+	private List<ColumnMetaData> getColumns(final SqlResource sqlResource) {
+		final List<ColumnMetaData> columns = new ArrayList<ColumnMetaData>();
+		for (final ColumnMetaData column : sqlResource.getMetaData().getAllReadColumns()) {
+			if (!column.isNonqueriedForeignKey()) {
+				columns.add(column);
+			}
+		}
+		return columns;
+	}
+
+	/** Returns parent values and child values, if any, in column order. */
+	private Object[] getRowValues(final List<ColumnMetaData> columns, final Map<String, Object> parentRow,
+			final Map<String, Object> childRow) {
+		final Object[] values = new Object[columns.size()];
+		for (int i = 0; i < values.length; i++) {
+			final String label = columns.get(i).getColumnLabel();
+			if (parentRow.containsKey(label)) {
+				values[i] = parentRow.get(label);
+			} else if (childRow != null) {
+				values[i] = childRow.get(label);
+			}
+		}
+		return values;
+	}
+}
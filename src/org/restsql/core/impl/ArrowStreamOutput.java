@@ -0,0 +1,614 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.restsql.core.ColumnMetaData;
+
+/**
+ * Writes an Arrow IPC stream to a writer of binary strings: a schema message, record batch messages holding a typed
+ * column vector per column, and the end-of-stream marker. Column types are mapped from their JDBC types:
+ * <ul>
+ * <li>TINYINT and SMALLINT to 32 bit integers, INTEGER and BIGINT to 64 bit, wide enough for unsigned values</li>
+ * <li>REAL to single precision, FLOAT and DOUBLE to double precision floating point</li>
+ * <li>BIT and BOOLEAN to boolean</li>
+ * <li>DATE to date in days, and the YEAR type to 32 bit integer</li>
+ * <li>TIMESTAMP to timestamp in microseconds, without time zone, holding the local date and time</li>
+ * <li>BINARY, VARBINARY, LONGVARBINARY and BLOB to binary</li>
+ * <li>Others, including DECIMAL, NUMERIC and TIME, to UTF-8 strings</li>
+ * </ul>
+ * See <a href="https://arrow.apache.org/docs/format/Columnar.html">the columnar format</a>.
+ *
+ * @author Mark Sawers
+ */
+class ArrowStreamOutput {
+	private static final int METADATA_VERSION_V5 = 4;
+	private static final int HEADER_RECORD_BATCH = 3;
+	private static final int HEADER_SCHEMA = 1;
+
+	private final List<String> labels = new ArrayList<String>();
+	private int rowCount;
+	private final List<Vector> vectors = new ArrayList<Vector>();
+	private final Writer writer;
+
+	ArrowStreamOutput(final Writer writer) {
+		this.writer = writer;
+	}
+
+	void addColumn(final String label, final int columnType, final String columnTypeName) {
+		labels.add(label);
+		switch (columnType) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+				vectors.add(new IntVector(32));
+				break;
+			case Types.INTEGER:
+			case Types.BIGINT:
+				vectors.add(new IntVector(64));
+				break;
+			case Types.REAL:
+				vectors.add(new FloatVector(false));
+				break;
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				vectors.add(new FloatVector(true));
+				break;
+			case Types.BIT:
+			case Types.BOOLEAN:
+				vectors.add(new BooleanVector());
+				break;
+			case Types.DATE:
+				vectors.add(columnTypeName.equals("YEAR") ? new IntVector(32) : new DateVector());
+				break;
+			case Types.TIMESTAMP:
+				vectors.add(new TimestampVector());
+				break;
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				vectors.add(new VariableWidthVector(false));
+				break;
+			default:
+				vectors.add(new VariableWidthVector(true));
+		}
+	}
+
+	/** Adds row of values in column order. */
+	void addRow(final Object... values) {
+		for (int i = 0; i < values.length; i++) {
+			vectors.get(i).append(values[i]);
+		}
+		rowCount++;
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	/** Adds row from current result set row, for the columns in the order they were added. */
+	void readRow(final ResultSet resultSet, final List<ColumnMetaData> columns) throws SQLException {
+		for (int i = 0; i < columns.size(); i++) {
+			vectors.get(i).read(resultSet, columns.get(i));
+		}
+		rowCount++;
+	}
+
+	/** Writes record batch of the rows added since the last one, and clears them. */
+	void writeBatch() throws IOException {
+		final Buffer body = new Buffer(1024);
+		final long[] nodes = new long[vectors.size() * 2];
+		final List<Long> buffers = new ArrayList<Long>();
+		for (int i = 0; i < vectors.size(); i++) {
+			final Vector vector = vectors.get(i);
+			nodes[i * 2] = rowCount;
+			nodes[i * 2 + 1] = vector.nullCount;
+			for (final Buffer buffer : vector.getBuffers(rowCount)) {
+				buffers.add(Long.valueOf(body.size));
+				buffers.add(Long.valueOf(buffer.size));
+				body.putBytes(buffer.bytes, buffer.size);
+				body.pad(8);
+			}
+			vector.clear();
+		}
+		final long[] bufferValues = new long[buffers.size()];
+		for (int i = 0; i < bufferValues.length; i++) {
+			bufferValues[i] = buffers.get(i).longValue();
+		}
+		final FlatBufferOutput.Table recordBatch = new FlatBufferOutput.Table().addLong(0, rowCount)
+				.addStructs(1, nodes).addStructs(2, bufferValues);
+		writeMessage(HEADER_RECORD_BATCH, recordBatch, body);
+		rowCount = 0;
+	}
+
+	void writeEnd() throws IOException {
+		final Buffer end = new Buffer(8);
+		end.putInt(-1);
+		end.putInt(0);
+		write(end);
+	}
+
+	void writeSchema() throws IOException {
+		final List<FlatBufferOutput.Table> fields = new ArrayList<FlatBufferOutput.Table>(vectors.size());
+		for (int i = 0; i < vectors.size(); i++) {
+			fields.add(new FlatBufferOutput.Table().addString(0, labels.get(i)).addBoolean(1, true).addByte(2,
+					vectors.get(i).typeId).addTable(3, vectors.get(i).getType()).addTables(5,
+					new ArrayList<FlatBufferOutput.Table>(0)));
+		}
+		writeMessage(HEADER_SCHEMA, new FlatBufferOutput.Table().addShort(0, 0).addTables(1, fields), new Buffer(0));
+	}
+
+	// Private utils
+
+	private static long floorDiv(final long dividend, final long divisor) {
+		final long quotient = dividend / divisor;
+		return dividend % divisor < 0 ? quotient - 1 : quotient;
+	}
+
+	/** Returns milliseconds since the epoch of the local date and time, as if in UTC. */
+	private static long getLocalMillis(final Date date) {
+		return date.getTime() + TimeZone.getDefault().getOffset(date.getTime());
+	}
+
+	/** Writes bytes as a binary string, one char per byte. */
+	private void write(final Buffer buffer) throws IOException {
+		final char[] chars = new char[buffer.size];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) (buffer.bytes[i] & 0xff);
+		}
+		writer.write(chars);
+	}
+
+	/** Writes encapsulated message: continuation marker, metadata length, metadata and body, all 8 byte aligned. */
+	private void writeMessage(final int headerType, final FlatBufferOutput.Table header, final Buffer body)
+			throws IOException {
+		final byte[] metadata = new FlatBufferOutput().finish(new FlatBufferOutput.Table().addShort(0,
+				METADATA_VERSION_V5).addByte(1, headerType).addTable(2, header).addLong(3, body.size));
+		final Buffer message = new Buffer(8 + metadata.length + body.size);
+		message.putInt(-1);
+		message.putInt(metadata.length);
+		message.putBytes(metadata, metadata.length);
+		message.putBytes(body.bytes, body.size);
+		write(message);
+	}
+
+	/** Growable little endian byte buffer. */
+	private static class Buffer {
+		private byte[] bytes;
+		private int size;
+
+		Buffer(final int capacity) {
+			bytes = new byte[capacity];
+		}
+
+		void clear() {
+			Arrays.fill(bytes, 0, size, (byte) 0);
+			size = 0;
+		}
+
+		void pad(final int alignment) {
+			reserve((alignment - size % alignment) % alignment);
+		}
+
+		void putBytes(final byte[] values, final int length) {
+			final int start = reserve(length);
+			System.arraycopy(values, 0, bytes, start, length);
+		}
+
+		void putInt(final int value) {
+			putScalar(4, value);
+		}
+
+		void putLong(final long value) {
+			putScalar(8, value);
+		}
+
+		/** Sets bit in bitmap, least significant bit first. */
+		void setBit(final int index) {
+			while (index / 8 >= size) {
+				reserve(1);
+			}
+			bytes[index / 8] |= 1 << (index % 8);
+		}
+
+		private void putScalar(final int length, final long value) {
+			final int start = reserve(length);
+			for (int i = 0; i < length; i++) {
+				bytes[start + i] = (byte) (value >>> (8 * i));
+			}
+		}
+
+		/** Advances size over zeroed bytes, returning the start. */
+		private int reserve(final int length) {
+			if (size + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+			}
+			final int start = size;
+			size += length;
+			return start;
+		}
+	}
+
+	/** Column vector, with a validity bitmap and type specific value buffers. */
+	private static abstract class Vector {
+		private int length;
+		private int nullCount;
+		private final byte typeId;
+		private final Buffer validity = new Buffer(128);
+
+		Vector(final int typeId) {
+			this.typeId = (byte) typeId;
+		}
+
+		void append(final Object value) {
+			if (value == null) {
+				nullCount++;
+				appendNull();
+			} else {
+				validity.setBit(length);
+				appendValue(value);
+			}
+			length++;
+		}
+
+		void clear() {
+			length = 0;
+			nullCount = 0;
+			validity.clear();
+		}
+
+		/** Returns validity bitmap and value buffers for the rows. */
+		Buffer[] getBuffers(final int rowCount) {
+			while (validity.size < (rowCount + 7) / 8) {
+				validity.reserve(1);
+			}
+			return new Buffer[] { validity };
+		}
+
+		/** Returns type table for the schema. */
+		FlatBufferOutput.Table getType() {
+			return new FlatBufferOutput.Table();
+		}
+
+		/** Reads and appends value from the result set. Overridden to use primitive getters. */
+		void read(final ResultSet resultSet, final ColumnMetaData column) throws SQLException {
+			append(SqlUtils.getObjectByColumnNumber(column, resultSet));
+		}
+
+		/** Counts valid value appended by a subclass, e.g. read with a primitive getter. */
+		void setValid() {
+			validity.setBit(length++);
+		}
+
+		/** Counts null value appended by a subclass. */
+		void setNull() {
+			nullCount++;
+			length++;
+		}
+
+		abstract void appendNull();
+
+		abstract void appendValue(Object value);
+	}
+
+	private static class BooleanVector extends Vector {
+		private final Buffer values = new Buffer(128);
+
+		BooleanVector() {
+			super(6);
+		}
+
+		@Override
+		void appendNull() {
+			// Bitmap bit stays unset
+		}
+
+		@Override
+		void appendValue(final Object value) {
+			if (value instanceof Number ? ((Number) value).intValue() != 0 : Boolean.parseBoolean(value.toString())) {
+				values.setBit(super.length);
+			}
+		}
+
+		@Override
+		void clear() {
+			super.clear();
+			values.clear();
+		}
+
+		@Override
+		Buffer[] getBuffers(final int rowCount) {
+			while (values.size < (rowCount + 7) / 8) {
+				values.reserve(1);
+			}
+			return new Buffer[] { super.getBuffers(rowCount)[0], values };
+		}
+
+		@Override
+		void read(final ResultSet resultSet, final ColumnMetaData column) throws SQLException {
+			final boolean value = resultSet.getBoolean(column.getColumnNumber());
+			if (resultSet.wasNull()) {
+				setNull();
+			} else {
+				if (value) {
+					values.setBit(super.length);
+				}
+				setValid();
+			}
+		}
+	}
+
+	/** Date in days since the epoch, from the local date. */
+	private static class DateVector extends Vector {
+		private final Buffer values = new Buffer(1024);
+
+		DateVector() {
+			super(8);
+		}
+
+		@Override
+		void appendNull() {
+			values.putInt(0);
+		}
+
+		@Override
+		void appendValue(final Object value) {
+			values.putInt((int) floorDiv(getLocalMillis((Date) value), 86400000));
+		}
+
+		@Override
+		void clear() {
+			super.clear();
+			values.clear();
+		}
+
+		@Override
+		Buffer[] getBuffers(final int rowCount) {
+			return new Buffer[] { super.getBuffers(rowCount)[0], values };
+		}
+
+		/** Returns day unit. */
+		@Override
+		FlatBufferOutput.Table getType() {
+			return new FlatBufferOutput.Table().addShort(0, 0);
+		}
+
+		@Override
+		void read(final ResultSet resultSet, final ColumnMetaData column) throws SQLException {
+			append(resultSet.getDate(column.getColumnNumber()));
+		}
+	}
+
+	private static class FloatVector extends Vector {
+		private final boolean doublePrecision;
+		private final Buffer values = new Buffer(1024);
+
+		FloatVector(final boolean doublePrecision) {
+			super(3);
+			this.doublePrecision = doublePrecision;
+		}
+
+		@Override
+		void appendNull() {
+			putValue(0);
+		}
+
+		@Override
+		void appendValue(final Object value) {
+			putValue(value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString()));
+		}
+
+		@Override
+		void clear() {
+			super.clear();
+			values.clear();
+		}
+
+		@Override
+		Buffer[] getBuffers(final int rowCount) {
+			return new Buffer[] { super.getBuffers(rowCount)[0], values };
+		}
+
+		/** Returns single or double precision. */
+		@Override
+		FlatBufferOutput.Table getType() {
+			return new FlatBufferOutput.Table().addShort(0, doublePrecision ? 2 : 1);
+		}
+
+		@Override
+		void read(final ResultSet resultSet, final ColumnMetaData column) throws SQLException {
+			final double value = resultSet.getDouble(column.getColumnNumber());
+			if (resultSet.wasNull()) {
+				setNull();
+				putValue(0);
+			} else {
+				setValid();
+				putValue(value);
+			}
+		}
+
+		private void putValue(final double value) {
+			if (doublePrecision) {
+				values.putLong(Double.doubleToLongBits(value));
+			} else {
+				values.putInt(Float.floatToIntBits((float) value));
+			}
+		}
+	}
+
+	private static class IntVector extends Vector {
+		private final int bitWidth;
+		private final Buffer values = new Buffer(1024);
+
+		IntVector(final int bitWidth) {
+			super(2);
+			this.bitWidth = bitWidth;
+		}
+
+		@Override
+		void appendNull() {
+			putValue(0);
+		}
+
+		@Override
+		void appendValue(final Object value) {
+			putValue(value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString()));
+		}
+
+		@Override
+		void clear() {
+			super.clear();
+			values.clear();
+		}
+
+		@Override
+		Buffer[] getBuffers(final int rowCount) {
+			return new Buffer[] { super.getBuffers(rowCount)[0], values };
+		}
+
+		/** Returns bit width, signed. */
+		@Override
+		FlatBufferOutput.Table getType() {
+			return new FlatBufferOutput.Table().addInt(0, bitWidth).addBoolean(1, true);
+		}
+
+		@Override
+		void read(final ResultSet resultSet, final ColumnMetaData column) throws SQLException {
+			if (column.getColumnType() == Types.DATE) { // YEAR
+				super.read(resultSet, column);
+				return;
+			}
+			final long value = resultSet.getLong(column.getColumnNumber());
+			if (resultSet.wasNull()) {
+				setNull();
+				putValue(0);
+			} else {
+				setValid();
+				putValue(value);
+			}
+		}
+
+		private void putValue(final long value) {
+			if (bitWidth == 32) {
+				values.putInt((int) value);
+			} else {
+				values.putLong(value);
+			}
+		}
+	}
+
+	/** Timestamp in microseconds since the epoch, from the local date and time. */
+	private static class TimestampVector extends Vector {
+		private final Buffer values = new Buffer(1024);
+
+		TimestampVector() {
+			super(10);
+		}
+
+		@Override
+		void appendNull() {
+			values.putLong(0);
+		}
+
+		@Override
+		void appendValue(final Object value) {
+			final long millis = getLocalMillis((Date) value);
+			if (value instanceof Timestamp) {
+				values.putLong(floorDiv(millis, 1000) * 1000000 + ((Timestamp) value).getNanos() / 1000);
+			} else {
+				values.putLong(millis * 1000);
+			}
+		}
+
+		@Override
+		void clear() {
+			super.clear();
+			values.clear();
+		}
+
+		@Override
+		Buffer[] getBuffers(final int rowCount) {
+			return new Buffer[] { super.getBuffers(rowCount)[0], values };
+		}
+
+		/** Returns microsecond unit, without time zone. */
+		@Override
+		FlatBufferOutput.Table getType() {
+			return new FlatBufferOutput.Table().addShort(0, 2);
+		}
+
+		@Override
+		void read(final ResultSet resultSet, final ColumnMetaData column) throws SQLException {
+			append(resultSet.getTimestamp(column.getColumnNumber()));
+		}
+	}
+
+	/** UTF-8 strings or binary, with 32 bit offsets into the data. */
+	private static class VariableWidthVector extends Vector {
+		private final Buffer data = new Buffer(4096);
+		private final Buffer offsets = new Buffer(1024);
+		private final boolean utf8;
+
+		VariableWidthVector(final boolean utf8) {
+			super(utf8 ? 5 : 4);
+			this.utf8 = utf8;
+			offsets.putInt(0);
+		}
+
+		@Override
+		void appendNull() {
+			offsets.putInt(data.size);
+		}
+
+		@Override
+		void appendValue(final Object value) {
+			final byte[] bytes;
+			if (value instanceof byte[]) {
+				bytes = (byte[]) value;
+			} else {
+				try {
+					bytes = (value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString())
+							.getBytes("UTF-8");
+				} catch (final UnsupportedEncodingException exception) {
+					throw new AssertionError(exception); // every JVM supports UTF-8
+				}
+			}
+			data.putBytes(bytes, bytes.length);
+			offsets.putInt(data.size);
+		}
+
+		@Override
+		void clear() {
+			super.clear();
+			data.clear();
+			offsets.clear();
+			offsets.putInt(0);
+		}
+
+		@Override
+		Buffer[] getBuffers(final int rowCount) {
+			return new Buffer[] { super.getBuffers(rowCount)[0], offsets, data };
+		}
+
+		@Override
+		void read(final ResultSet resultSet, final ColumnMetaData column) throws SQLException {
+			if (utf8) {
+				super.read(resultSet, column);
+			} else {
+				append(resultSet.getBytes(column.getColumnNumber()));
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restsql.core.Config;
+import org.restsql.core.Request;
+import org.restsql.core.Trigger;
+
+/**
+ * Executes after-phase callbacks of asynchronous triggers on a bounded thread pool, so that they do not delay the
+ * response. When the queue is full the request thread runs the callbacks itself, which slows down producers instead of
+ * dropping work. Trigger exceptions cannot reach the client and are logged to the internal log. The pool is created on
+ * first use.
+ *
+ * @author Mark Sawers
+ */
+public class AsyncTriggerExecutor {
+	private static final AtomicLong callerRuns = new AtomicLong();
+	private static final AtomicLong completed = new AtomicLong();
+	private static volatile ThreadPoolExecutor executor;
+	private static final AtomicLong failed = new AtomicLong();
+	private static final AtomicLong submitted = new AtomicLong();
+
+	/** Returns string representation of executor configuration and counters. */
+	public static String dumpStatistics() {
+		final ThreadPoolExecutor currentExecutor = executor;
+		final StringBuilder dump = new StringBuilder(300);
+		dump.append("Asynchronous triggers\n");
+		if (currentExecutor == null) {
+			dump.append("\texecutor not started\n");
+		} else {
+			appendStatistic(dump, "threads", currentExecutor.getMaximumPoolSize());
+			appendStatistic(dump, "active", currentExecutor.getActiveCount());
+			appendStatistic(dump, "queued", currentExecutor.getQueue().size());
+			appendStatistic(dump, "queue capacity", currentExecutor.getQueue().size()
+					+ currentExecutor.getQueue().remainingCapacity());
+		}
+		appendStatistic(dump, "submitted", submitted.get());
+		appendStatistic(dump, "completed", completed.get());
+		appendStatistic(dump, "failed", failed.get());
+		appendStatistic(dump, "ran on request thread", callerRuns.get());
+		return dump.toString();
+	}
+
+	/**
+	 * Queues after-phase callbacks of the triggers for the request. The triggers are executed in order by a single
+	 * task.
+	 */
+	public static void execute(final Request request, final Trigger[] triggers) {
+		submitted.incrementAndGet();
+		getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				for (final Trigger trigger : triggers) {
+					try {
+						TriggerManager.executeTrigger(request, trigger, false);
+					} catch (final Throwable throwable) {
+						failed.incrementAndGet();
+						Config.logger.error("Asynchronous trigger " + trigger.getClass().getName() + " failed for "
+								+ request.getType() + " on " + request.getSqlResource(), throwable);
+					}
+				}
+				completed.incrementAndGet();
+			}
+		});
+	}
+
+	/** Stops accepting callbacks and waits briefly for queued ones to finish. Called by the service on unload. */
+	public static void shutdown() {
+		final ThreadPoolExecutor currentExecutor = executor;
+		if (currentExecutor != null) {
+			currentExecutor.shutdown();
+			try {
+				if (!currentExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+					Config.logger.warn("Asynchronous triggers still queued at shutdown: "
+							+ currentExecutor.shutdownNow().size());
+				}
+			} catch (final InterruptedException exception) {
+				currentExecutor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Private utils
+
+	private static void appendStatistic(final StringBuilder dump, final String name, final long value) {
+		dump.append('\t');
+		dump.append(name);
+		dump.append(" = ");
+		dump.append(value);
+		dump.append('\n');
+	}
+
+	private static ThreadPoolExecutor getExecutor() {
+		ThreadPoolExecutor currentExecutor = executor;
+		if (currentExecutor == null) {
+			synchronized (AsyncTriggerExecutor.class) {
+				if (executor == null) {
+					final int threads = Integer.parseInt(Config.properties.getProperty(
+							Config.KEY_TRIGGERS_ASYNC_THREADS, Config.DEFAULT_TRIGGERS_ASYNC_THREADS));
+					final int queueSize = Integer.parseInt(Config.properties.getProperty(
+							Config.KEY_TRIGGERS_ASYNC_QUEUE_SIZE, Config.DEFAULT_TRIGGERS_ASYNC_QUEUE_SIZE));
+					executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+							new ArrayBlockingQueue<Runnable>(queueSize), new TriggerThreadFactory(),
+							new CallerRunsHandler());
+					executor.allowCoreThreadTimeOut(true);
+				}
+				currentExecutor = executor;
+			}
+		}
+		return currentExecutor;
+	}
+
+	/** Runs the task on the submitting thread when the queue is full, counting the occurrence. */
+	private static class CallerRunsHandler implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+			if (!executor.isShutdown()) {
+				callerRuns.incrementAndGet();
+				runnable.run();
+			}
+		}
+	}
+
+	/** Creates named daemon threads. */
+	private static class TriggerThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "restsql-trigger-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
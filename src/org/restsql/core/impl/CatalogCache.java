@@ -0,0 +1,76 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches catalog information for tables, keyed by database and table name, so that resources sharing tables query the
+ * catalog once. Populated by bulk meta data discovery and cleared when a resource is reloaded.
+ *
+ * @author Mark Sawers
+ */
+public class CatalogCache {
+	private static final Map<String, Map<String, CatalogTable>> databases = new ConcurrentHashMap<String, Map<String, CatalogTable>>();
+
+	/** Removes all cached tables. */
+	public static void clear() {
+		databases.clear();
+	}
+
+	/** Returns cached table, or null if not cached. */
+	static CatalogTable get(final String databaseName, final String tableName) {
+		final Map<String, CatalogTable> tables = databases.get(databaseName);
+		return tables == null ? null : tables.get(tableName);
+	}
+
+	static void put(final String databaseName, final String tableName, final CatalogTable table) {
+		Map<String, CatalogTable> tables = databases.get(databaseName);
+		if (tables == null) {
+			synchronized (databases) {
+				tables = databases.get(databaseName);
+				if (tables == null) {
+					tables = new ConcurrentHashMap<String, CatalogTable>();
+					databases.put(databaseName, tables);
+				}
+			}
+		}
+		tables.put(tableName, table);
+	}
+
+	/** Columns, primary key column names and schema of a table. Tables not found in the catalog are empty. */
+	static class CatalogTable {
+		/** List of [column name, data type]. */
+		private final List<String[]> columns = new ArrayList<String[]>();
+		private final List<String> primaryKeys = new ArrayList<String>();
+		private String schemaName;
+
+		void addColumn(final String columnName, final String dataType) {
+			columns.add(new String[] { columnName, dataType });
+		}
+
+		void addPrimaryKey(final String columnName) {
+			primaryKeys.add(columnName);
+		}
+
+		List<String[]> getColumns() {
+			return columns;
+		}
+
+		List<String> getPrimaryKeys() {
+			return primaryKeys;
+		}
+
+		String getSchemaName() {
+			return schemaName;
+		}
+
+		void setSchemaName(final String schemaName) {
+			if (this.schemaName == null) {
+				this.schemaName = schemaName;
+			}
+		}
+	}
+}
@@ -261,6 +261,10 @@ public class ColumnMetaDataImpl implements ColumnMetaData {
 		this.primaryKey = primaryKey;
 	}
 
+	void setSqlResourceMetaData(final SqlResourceMetaData sqlResourceMetaData) {
+		sqlResourceMetadata = sqlResourceMetaData;
+	}
+
 	void setTableRole(final TableRole tableRole) {
 		this.tableRole = tableRole;
 	}
@@ -0,0 +1,310 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.restsql.core.Config;
+import org.restsql.core.SqlResource;
+import org.restsql.core.sqlresource.HttpConcurrency;
+
+/**
+ * Limits requests executing concurrently, globally and per SQL Resource, so that a traffic spike on one expensive
+ * resource cannot consume every container thread and database connection. Requests beyond the limit wait in a bounded
+ * queue for up to the queue timeout and are then rejected, as are requests arriving when the queue is full. Resource
+ * limits default to the <code>http.concurrency</code> properties and may be overridden in the definition's http
+ * element. A limit of 0 disables limiting.
+ * <p>
+ * An adaptive limiter adjusts its limit from the SQL execution times of its resource, in AIMD style. It compares a
+ * smoothed latency, which follows recent samples, with a baseline latency averaged over a long window of samples, so
+ * that the baseline reflects the resource's usual mix of fast and slow statements. Once per round of samples, where a
+ * round is as many samples as the current limit, the limit is multiplied by the backoff ratio if the smoothed latency
+ * exceeds the baseline by the tolerance ratio, or otherwise grows by one if requests are waiting for it. The limit
+ * stays between the adaptive minimum and the resource's maxConcurrent.
+ *
+ * @author Mark Sawers
+ */
+public class ConcurrencyLimiter {
+	/** Number of samples the baseline latency averages over, so it accepts a new normal slowly. */
+	private static final int BASELINE_WINDOW = 600;
+	/** Weight of the latest sample in the smoothed latency. */
+	private static final double SMOOTHING = 0.1;
+
+	private static final ConcurrencyLimiter globalLimiter = new ConcurrencyLimiter(null, getIntProperty(
+			Config.KEY_HTTP_CONCURRENCY_GLOBAL_MAX_CONCURRENT, Config.DEFAULT_HTTP_CONCURRENCY_GLOBAL_MAX_CONCURRENT),
+			getIntProperty(Config.KEY_HTTP_CONCURRENCY_MAX_QUEUED, Config.DEFAULT_HTTP_CONCURRENCY_MAX_QUEUED),
+			getIntProperty(Config.KEY_HTTP_CONCURRENCY_QUEUE_TIMEOUT, Config.DEFAULT_HTTP_CONCURRENCY_QUEUE_TIMEOUT),
+			false);
+	private static final ConcurrentMap<String, ConcurrencyLimiter> resourceLimiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
+	/** Returns string representation of the global and resource limiters. */
+	public static String dumpStatistics() {
+		final StringBuilder dump = new StringBuilder(300 + resourceLimiters.size() * 150);
+		dump.append("Concurrency limits\n");
+		dump.append("\tglobal");
+		globalLimiter.appendStatistics(dump);
+		for (final Map.Entry<String, ConcurrencyLimiter> entry : new TreeMap<String, ConcurrencyLimiter>(
+				resourceLimiters).entrySet()) {
+			dump.append('\t');
+			dump.append(entry.getKey());
+			entry.getValue().appendStatistics(dump);
+		}
+		return dump.toString();
+	}
+
+	/** Returns global limiter, or null if global limiting is disabled. */
+	public static ConcurrencyLimiter getGlobalLimiter() {
+		return globalLimiter.maxConcurrent > 0 ? globalLimiter : null;
+	}
+
+	/**
+	 * Returns limiter for the resource, or null if limiting is disabled for it. A reloaded resource gets a new limiter
+	 * with its new settings. Requests admitted by the previous limiter release it as usual.
+	 */
+	public static ConcurrencyLimiter getLimiter(final SqlResource sqlResource) {
+		ConcurrencyLimiter limiter = resourceLimiters.get(sqlResource.getName());
+		while (limiter == null || limiter.sqlResource != sqlResource) {
+			final ConcurrencyLimiter newLimiter = newLimiter(sqlResource);
+			if (limiter == null ? resourceLimiters.putIfAbsent(sqlResource.getName(), newLimiter) == null
+					: resourceLimiters.replace(sqlResource.getName(), limiter, newLimiter)) {
+				limiter = newLimiter;
+			} else {
+				limiter = resourceLimiters.get(sqlResource.getName());
+			}
+		}
+		return limiter.maxConcurrent > 0 ? limiter : null;
+	}
+
+	/** Returns Retry-After seconds for rejected requests. */
+	public static int getRetryAfter() {
+		return getIntProperty(Config.KEY_HTTP_CONCURRENCY_RETRY_AFTER, Config.DEFAULT_HTTP_CONCURRENCY_RETRY_AFTER);
+	}
+
+	/** Records SQL execution time in nanoseconds of the resource, adjusting its limiter if adaptive. */
+	public static void recordLatency(final SqlResource sqlResource, final long executionTime) {
+		final ConcurrencyLimiter limiter = resourceLimiters.get(sqlResource.getName());
+		if (limiter != null && limiter.adaptive && limiter.sqlResource == sqlResource) {
+			limiter.recordLatency(executionTime);
+		}
+	}
+
+	/** Appends nanoseconds as milliseconds with microsecond precision. */
+	private static void appendMillis(final StringBuilder dump, final double nanos) {
+		dump.append(Math.round(nanos / 1000) / 1000.0);
+	}
+
+	private static double getDoubleProperty(final String key, final String defaultValue) {
+		return Double.parseDouble(Config.properties.getProperty(key, defaultValue));
+	}
+
+	private static int getIntProperty(final String key, final String defaultValue) {
+		return Integer.parseInt(Config.properties.getProperty(key, defaultValue));
+	}
+
+	private static ConcurrencyLimiter newLimiter(final SqlResource sqlResource) {
+		int maxConcurrent = getIntProperty(Config.KEY_HTTP_CONCURRENCY_MAX_CONCURRENT,
+				Config.DEFAULT_HTTP_CONCURRENCY_MAX_CONCURRENT);
+		int maxQueued = getIntProperty(Config.KEY_HTTP_CONCURRENCY_MAX_QUEUED,
+				Config.DEFAULT_HTTP_CONCURRENCY_MAX_QUEUED);
+		int queueTimeout = getIntProperty(Config.KEY_HTTP_CONCURRENCY_QUEUE_TIMEOUT,
+				Config.DEFAULT_HTTP_CONCURRENCY_QUEUE_TIMEOUT);
+		boolean adaptive = Boolean.valueOf(Config.properties.getProperty(Config.KEY_HTTP_CONCURRENCY_ADAPTIVE,
+				Config.DEFAULT_HTTP_CONCURRENCY_ADAPTIVE));
+		if (sqlResource.getDefinition().getHttp() != null
+				&& sqlResource.getDefinition().getHttp().getConcurrency() != null) {
+			final HttpConcurrency concurrency = sqlResource.getDefinition().getHttp().getConcurrency();
+			if (concurrency.getMaxConcurrent() != null) {
+				maxConcurrent = concurrency.getMaxConcurrent().intValue();
+			}
+			if (concurrency.getMaxQueued() != null) {
+				maxQueued = concurrency.getMaxQueued().intValue();
+			}
+			if (concurrency.getQueueTimeout() != null) {
+				queueTimeout = concurrency.getQueueTimeout().intValue();
+			}
+			if (concurrency.isAdaptive() != null) {
+				adaptive = concurrency.isAdaptive().booleanValue();
+			}
+		}
+		return new ConcurrencyLimiter(sqlResource, maxConcurrent, maxQueued, queueTimeout, adaptive);
+	}
+
+	private int active;
+	private final boolean adaptive;
+	private final AtomicLong admitted = new AtomicLong();
+	private final double backoffRatio;
+	private double baselineLatency;
+	private final double latencyTolerance;
+	/** Current limit, equal to maxConcurrent unless adaptive. */
+	private int limit;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final int minConcurrent;
+	private final Condition permitAvailable = lock.newCondition();
+	private int queued;
+	private final long queueTimeout;
+	private final AtomicLong rejected = new AtomicLong();
+	private long samples;
+	private int samplesSinceAdjustment;
+	private double smoothedLatency;
+	private final SqlResource sqlResource;
+	private final AtomicLong timedOut = new AtomicLong();
+
+	private ConcurrencyLimiter(final SqlResource sqlResource, final int maxConcurrent, final int maxQueued,
+			final long queueTimeout, final boolean adaptive) {
+		this.sqlResource = sqlResource;
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+		this.queueTimeout = queueTimeout;
+		this.adaptive = adaptive && maxConcurrent > 0;
+		limit = maxConcurrent;
+		minConcurrent = Math.max(1, Math.min(maxConcurrent, getIntProperty(
+				Config.KEY_HTTP_CONCURRENCY_ADAPTIVE_MIN_CONCURRENT,
+				Config.DEFAULT_HTTP_CONCURRENCY_ADAPTIVE_MIN_CONCURRENT)));
+		latencyTolerance = getDoubleProperty(Config.KEY_HTTP_CONCURRENCY_ADAPTIVE_LATENCY_TOLERANCE,
+				Config.DEFAULT_HTTP_CONCURRENCY_ADAPTIVE_LATENCY_TOLERANCE);
+		backoffRatio = getDoubleProperty(Config.KEY_HTTP_CONCURRENCY_ADAPTIVE_BACKOFF_RATIO,
+				Config.DEFAULT_HTTP_CONCURRENCY_ADAPTIVE_BACKOFF_RATIO);
+	}
+
+	/**
+	 * Admits the request, waiting in the queue if the limit is reached. Admitted requests must call {@link #release()}
+	 * when complete.
+	 *
+	 * @return true if admitted, false if rejected because the queue is full or the queue timeout elapsed
+	 * @throws InterruptedException if interrupted while queued
+	 */
+	public boolean acquire() throws InterruptedException {
+		lock.lock();
+		try {
+			if (active < limit) {
+				active++;
+				admitted.incrementAndGet();
+				return true;
+			} else if (queued >= maxQueued) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			queued++;
+			try {
+				long remaining = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+				while (active >= limit) {
+					if (remaining <= 0) {
+						timedOut.incrementAndGet();
+						return false;
+					}
+					remaining = permitAvailable.awaitNanos(remaining);
+				}
+			} finally {
+				queued--;
+			}
+			active++;
+			admitted.incrementAndGet();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns current limit. */
+	public int getLimit() {
+		lock.lock();
+		try {
+			return limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns number of requests waiting. */
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Releases the permit of an admitted request, admitting the next queued request if any. */
+	public void release() {
+		lock.lock();
+		try {
+			active--;
+			permitAvailable.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void appendStatistics(final StringBuilder dump) {
+		lock.lock();
+		try {
+			dump.append(": limit ");
+			dump.append(maxConcurrent > 0 ? String.valueOf(limit) : "none");
+			if (adaptive) {
+				dump.append(" (adaptive ");
+				dump.append(minConcurrent);
+				dump.append('-');
+				dump.append(maxConcurrent);
+				dump.append(", latency ");
+				appendMillis(dump, smoothedLatency);
+				dump.append(" ms, baseline ");
+				appendMillis(dump, baselineLatency);
+				dump.append(" ms)");
+			}
+			dump.append(", active ");
+			dump.append(active);
+			dump.append(", queued ");
+			dump.append(queued);
+			dump.append(" of ");
+			dump.append(maxQueued);
+		} finally {
+			lock.unlock();
+		}
+		dump.append(", admitted ");
+		dump.append(admitted.get());
+		dump.append(", rejected ");
+		dump.append(rejected.get());
+		dump.append(", timed out ");
+		dump.append(timedOut.get());
+		dump.append('\n');
+	}
+
+	/**
+	 * Updates the baseline and smoothed latency and, once per round of samples, adjusts the limit. The baseline is the
+	 * plain mean until the window fills and then a moving average.
+	 */
+	private void recordLatency(final long executionTime) {
+		lock.lock();
+		try {
+			samples++;
+			if (samples == 1) {
+				baselineLatency = executionTime;
+				smoothedLatency = executionTime;
+			} else {
+				baselineLatency += (executionTime - baselineLatency) / Math.min(samples, BASELINE_WINDOW);
+				smoothedLatency += (executionTime - smoothedLatency) * SMOOTHING;
+			}
+			if (++samplesSinceAdjustment < limit) {
+				return;
+			}
+			if (smoothedLatency > baselineLatency * latencyTolerance) {
+				limit = Math.max(minConcurrent, Math.min(limit - 1, (int) (limit * backoffRatio)));
+			} else if (queued > 0 && limit < maxConcurrent) {
+				limit++;
+				permitAvailable.signal();
+			}
+			samplesSinceAdjustment = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -35,13 +35,20 @@ public class ConnectionFactoryImpl implements ConnectionFactory {
 
 	public Connection getConnection(String defaultDatabase) throws SQLException {
 		if (driver == null) {
-			try {
-				Class.forName(driverClassName).newInstance();
-			} catch (Exception exception) {
-				throw new SQLException("Failed to load JDBC driver class " + driverClassName, exception);
-			}
-			driver = DriverManager.getDriver(url);
+			driver = getDriver(url);
 		}
+		return connect(driver, url, defaultDatabase);
+	}
+
+	public void destroy() throws SQLException {
+		if (driver != null) {
+			DriverManager.deregisterDriver(driver);
+		}
+	}
+
+	/** Connects to the url with the configured user and password, and sets the default database. */
+	protected Connection connect(final Driver driver, final String url, final String defaultDatabase)
+			throws SQLException {
 		Connection connection = driver.connect(url, connectProperties);
 		if (defaultDatabase != null) {
 			connection.setCatalog(defaultDatabase);
@@ -49,9 +56,13 @@ public class ConnectionFactoryImpl implements ConnectionFactory {
 		return connection;
 	}
 
-	public void destroy() throws SQLException {
-		if (driver != null) {
-			DriverManager.deregisterDriver(driver);
+	/** Loads the configured driver class and returns the driver for the url. */
+	protected Driver getDriver(final String url) throws SQLException {
+		try {
+			Class.forName(driverClassName).newInstance();
+		} catch (Exception exception) {
+			throw new SQLException("Failed to load JDBC driver class " + driverClassName, exception);
 		}
+		return DriverManager.getDriver(url);
 	}
 }
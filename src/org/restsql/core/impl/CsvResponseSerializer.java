@@ -0,0 +1,187 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Config;
+import org.restsql.core.SqlResource;
+import org.restsql.core.StreamingResponseSerializer;
+
+/**
+ * Converts read/write results to RFC 4180 comma-separated values, with a header row of column labels. Hierarchical
+ * results are flattened to a row per child, repeating the parent columns, or a row with empty child columns for a
+ * parent without children. For example:
+ *
+ * <pre>
+ * film_id,title,actor_id,actor_name
+ * 1,ACADEMY DINOSAUR,1,PENELOPE
+ * 1,ACADEMY DINOSAUR,10,CHRISTIAN
+ * </pre>
+ *
+ * @author Mark Sawers
+ */
+public class CsvResponseSerializer implements StreamingResponseSerializer {
+	private static final String LINE_END = "\r\n";
+
+	private final int flushInterval = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_RESPONSE_FLUSH_INTERVAL, Config.DEFAULT_RESPONSE_FLUSH_INTERVAL));
+
+	@Override
+	public String getSupportedMediaType() {
+		return "text/csv";
+	}
+
+	/**
+	 * Writes header and flat or flattened hierarchical select results as they are read.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param writer output
+	 */
+	@Override
+	public void serializeRead(final SqlResource sqlResource, final ResultSet resultSet, final Writer writer)
+			throws SQLException, IOException {
+		final List<ColumnMetaData> columns = sqlResource.getMetaData().getAllReadColumns();
+		final StringBuilder line = new StringBuilder(200);
+		appendHeader(columns, line);
+		writer.append(line);
+		line.setLength(0);
+		int rowCount = 0;
+		while (resultSet.next()) {
+			boolean firstValue = true;
+			for (final ColumnMetaData column : columns) {
+				if (!column.isNonqueriedForeignKey()) {
+					appendValue(firstValue, line, SqlUtils.getObjectByColumnNumber(column, resultSet));
+					firstValue = false;
+				}
+			}
+			line.append(LINE_END);
+			writer.append(line);
+			line.setLength(0);
+			if (flushInterval > 0 && ++rowCount % flushInterval == 0) {
+				writer.flush();
+			}
+		}
+	}
+
+	/**
+	 * Converts flat select results to a CSV string.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @return CSV string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
+			throws SQLException {
+		final StringWriter writer = new StringWriter(1000);
+		try {
+			serializeRead(sqlResource, resultSet, writer);
+		} catch (final IOException exception) {
+			// Not thrown by StringWriter
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Converts hierarchical select results to a flattened CSV string.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param results results
+	 * @return CSV string
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public String serializeReadHierarchical(final SqlResource sqlResource,
+			final List<Map<String, Object>> results) {
+		final List<ColumnMetaData> columns = sqlResource.getMetaData().getAllReadColumns();
+		final String childRowElementName = sqlResource.getMetaData().getChild().getTableAlias() + "s";
+		final StringBuilder string = new StringBuilder(results.size() * 100);
+		appendHeader(columns, string);
+		for (final Map<String, Object> parentRow : results) {
+			final List<Map<String, Object>> childRows = (List<Map<String, Object>>) parentRow
+					.get(childRowElementName);
+			if (childRows.size() == 0) {
+				appendRow(columns, parentRow, null, string);
+			} else {
+				for (final Map<String, Object> childRow : childRows) {
+					appendRow(columns, parentRow, childRow, string);
+				}
+			}
+		}
+		return string.toString();
+	}
+
+	/**
+	 * Converts write results to a CSV string.
+	 *
+	 * @param rowsAffected rows affected
+	 */
+	@Override
+	public String serializeWrite(final int rowsAffected) {
+		return "rowsAffected" + LINE_END + rowsAffected + LINE_END;
+	}
+
+	// Package level utils (for testability)
+
+	/** Appends value, quoting it if it contains a comma, quote or line break and doubling embedded quotes. */
+	void appendValue(final boolean firstValue, final StringBuilder string, final Object value) {
+		if (!firstValue) {
+			string.append(',');
+		}
+		if (value != null) {
+			final String text = value.toString();
+			boolean quote = false;
+			for (int i = 0; i < text.length() && !quote; i++) {
+				final char c = text.charAt(i);
+				quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+			}
+			if (quote) {
+				string.append('"');
+				string.append(text.replace("\"", "\"\""));
+				string.append('"');
+			} else {
+				string.append(text);
+			}
+		}
+	}
+
+	// Private utils
+
+	private void appendHeader(final List<ColumnMetaData> columns, final StringBuilder string) {
+		boolean firstValue = true;
+		for (final ColumnMetaData column : columns) {
+			if (!column.isNonqueriedForeignKey()) {
+				appendValue(firstValue, string, column.getColumnLabel());
+				firstValue = false;
+			}
+		}
+		string.append(LINE_END);
+	}
+
+	/** Appends row of parent values and child values, if any, in header order. */
+	private void appendRow(final List<ColumnMetaData> columns, final Map<String, Object> parentRow,
+			final Map<String, Object> childRow, final StringBuilder string) {
+		boolean firstValue = true;
+		for (final ColumnMetaData column : columns) {
+			if (!column.isNonqueriedForeignKey()) {
+				Object value = null;
+				if (parentRow.containsKey(column.getColumnLabel())) {
+					value = parentRow.get(column.getColumnLabel());
+				} else if (childRow != null) {
+					value = childRow.get(column.getColumnLabel());
+				}
+				appendValue(firstValue, string, value);
+				firstValue = false;
+			}
+		}
+		string.append(LINE_END);
+	}
+}
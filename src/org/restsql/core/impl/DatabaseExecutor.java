@@ -0,0 +1,179 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restsql.core.Config;
+import org.restsql.core.SqlResourceException;
+
+/**
+ * Executes tasks on a bounded thread pool sized to the connection pool. Java API clients may use
+ * {@link #submit(Callable)} to continue without waiting for database work, and the service runs the reads of batch
+ * requests in parallel on it. When the queue is full, tasks are rejected. Threads may be virtual threads on runtimes
+ * that support them. The pool is created on first use.
+ * <p>
+ * The service does not run single requests on the pool. On Servlet 2.5 and JAX-RS 1.1, which cannot suspend a
+ * request, the request thread would wait for the task, holding two threads per request. Single requests are capped by
+ * the {@link ConcurrencyLimiter} instead.
+ *
+ * @author Mark Sawers
+ */
+public class DatabaseExecutor {
+	private static final AtomicLong completed = new AtomicLong();
+	private static volatile ThreadPoolExecutor executor;
+	private static final AtomicLong rejected = new AtomicLong();
+	private static final AtomicLong submitted = new AtomicLong();
+
+	/** Returns string representation of executor configuration and counters. */
+	public static String dumpStatistics() {
+		final ThreadPoolExecutor currentExecutor = executor;
+		final StringBuilder dump = new StringBuilder(300);
+		dump.append("Database executor\n");
+		if (currentExecutor == null) {
+			dump.append(isEnabled() ? "\texecutor not started\n" : "\tdisabled\n");
+		} else {
+			appendStatistic(dump, "threads", currentExecutor.getMaximumPoolSize());
+			appendStatistic(dump, "active", currentExecutor.getActiveCount());
+			appendStatistic(dump, "queued", currentExecutor.getQueue().size());
+			appendStatistic(dump, "queue capacity", currentExecutor.getQueue().size()
+					+ currentExecutor.getQueue().remainingCapacity());
+		}
+		appendStatistic(dump, "submitted", submitted.get());
+		appendStatistic(dump, "completed", completed.get());
+		appendStatistic(dump, "rejected", rejected.get());
+		return dump.toString();
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.valueOf(Config.properties.getProperty(Config.KEY_DATABASE_EXECUTOR,
+				Config.DEFAULT_DATABASE_EXECUTOR));
+	}
+
+	/** Stops accepting tasks and waits briefly for running ones to finish. Called by the service on unload. */
+	public static void shutdown() {
+		final ThreadPoolExecutor currentExecutor = executor;
+		if (currentExecutor != null) {
+			currentExecutor.shutdown();
+			try {
+				if (!currentExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+					Config.logger.warn("Database executor tasks still running at shutdown: "
+							+ currentExecutor.shutdownNow().size());
+				}
+			} catch (final InterruptedException exception) {
+				currentExecutor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Queues the task on the pool.
+	 *
+	 * @throws RejectedExecutionException if the queue is full
+	 */
+	public static <T> Future<T> submit(final Callable<T> task) {
+		try {
+			final Future<T> future = getExecutor().submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					try {
+						return task.call();
+					} finally {
+						completed.incrementAndGet();
+					}
+				}
+			});
+			submitted.incrementAndGet();
+			return future;
+		} catch (final RejectedExecutionException exception) {
+			rejected.incrementAndGet();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Rethrows unchecked causes of the exception and returns others as a {@link SqlResourceException}, unwrapping
+	 * those that already are.
+	 */
+	static SqlResourceException toSqlResourceException(final ExecutionException exception) {
+		final Throwable cause = exception.getCause();
+		if (cause instanceof SqlResourceException) {
+			return (SqlResourceException) cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		} else {
+			return new SqlResourceException(cause);
+		}
+	}
+
+	// Private utils
+
+	private static void appendStatistic(final StringBuilder dump, final String name, final long value) {
+		dump.append('\t');
+		dump.append(name);
+		dump.append(" = ");
+		dump.append(value);
+		dump.append('\n');
+	}
+
+	private static ThreadPoolExecutor getExecutor() {
+		ThreadPoolExecutor currentExecutor = executor;
+		if (currentExecutor == null) {
+			synchronized (DatabaseExecutor.class) {
+				if (executor == null) {
+					final int threads = Integer.parseInt(Config.properties.getProperty(
+							Config.KEY_DATABASE_EXECUTOR_THREADS, Config.DEFAULT_DATABASE_EXECUTOR_THREADS));
+					final int queueSize = Integer.parseInt(Config.properties.getProperty(
+							Config.KEY_DATABASE_EXECUTOR_QUEUE_SIZE, Config.DEFAULT_DATABASE_EXECUTOR_QUEUE_SIZE));
+					executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+							new ArrayBlockingQueue<Runnable>(queueSize), getThreadFactory());
+					executor.allowCoreThreadTimeOut(true);
+				}
+				currentExecutor = executor;
+			}
+		}
+		return currentExecutor;
+	}
+
+	/** Returns virtual thread factory if configured and supported by the runtime, otherwise a platform one. */
+	private static ThreadFactory getThreadFactory() {
+		if (Boolean.valueOf(Config.properties.getProperty(Config.KEY_DATABASE_EXECUTOR_VIRTUAL_THREADS,
+				Config.DEFAULT_DATABASE_EXECUTOR_VIRTUAL_THREADS))) {
+			try {
+				// Thread.ofVirtual().name("restsql-db-", 1).factory(), available from Java 21
+				final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+				Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "restsql-db-",
+						Long.valueOf(1));
+				return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			} catch (final Exception exception) {
+				Config.logger.warn("Virtual threads not supported by this runtime, using platform threads -- "
+						+ exception);
+			}
+		}
+		return new DatabaseThreadFactory();
+	}
+
+	/** Creates named daemon threads. */
+	private static class DatabaseThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "restsql-db-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds a FlatBuffer, as used for Arrow IPC message metadata, from a tree of tables. The buffer is written front to
+ * back: each table follows its vtable and precedes the objects it references, whose offsets are patched in once they
+ * are written, so all offsets point forward as the format requires. Scalars are aligned to their size, tables to 8
+ * bytes, and all values are little endian. See <a href="https://flatbuffers.dev/internals/">the internals</a>.
+ *
+ * @author Mark Sawers
+ */
+class FlatBufferOutput {
+	private byte[] buffer = new byte[256];
+	private int position;
+
+	/** Returns buffer holding the root table, padded to a multiple of 8 bytes. */
+	byte[] finish(final Table root) {
+		final int rootOffset = reserve(4);
+		patch(rootOffset, writeTable(root));
+		align(8);
+		return Arrays.copyOf(buffer, position);
+	}
+
+	/** Table of fields by id. Fields not added take their schema defaults. */
+	static class Table {
+		private final List<Field> fields = new ArrayList<Field>();
+
+		Table addBoolean(final int id, final boolean value) {
+			return addScalar(id, 1, value ? 1 : 0);
+		}
+
+		Table addByte(final int id, final int value) {
+			return addScalar(id, 1, value);
+		}
+
+		Table addInt(final int id, final int value) {
+			return addScalar(id, 4, value);
+		}
+
+		Table addLong(final int id, final long value) {
+			return addScalar(id, 8, value);
+		}
+
+		Table addShort(final int id, final int value) {
+			return addScalar(id, 2, value);
+		}
+
+		Table addString(final int id, final String value) {
+			return addReference(id, value);
+		}
+
+		/** Adds vector of structs of two longs, given as consecutive pairs of values. */
+		Table addStructs(final int id, final long[] values) {
+			return addReference(id, values);
+		}
+
+		Table addTable(final int id, final Table value) {
+			return addReference(id, value);
+		}
+
+		Table addTables(final int id, final List<Table> value) {
+			return addReference(id, value);
+		}
+
+		// Private utils
+
+		private Table addReference(final int id, final Object reference) {
+			fields.add(new Field(id, 4, 0, reference));
+			return this;
+		}
+
+		private Table addScalar(final int id, final int size, final long value) {
+			fields.add(new Field(id, size, value, null));
+			return this;
+		}
+	}
+
+	// Private utils
+
+	private void align(final int size) {
+		reserve((size - position % size) % size);
+	}
+
+	private void patch(final int offsetPosition, final int targetPosition) {
+		putScalar(offsetPosition, 4, targetPosition - offsetPosition);
+	}
+
+	private void putScalar(final int at, final int size, final long value) {
+		for (int i = 0; i < size; i++) {
+			buffer[at + i] = (byte) (value >>> (8 * i));
+		}
+	}
+
+	/** Advances position over zeroed bytes, returning the start. */
+	private int reserve(final int size) {
+		if (position + size > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + size));
+		}
+		final int start = position;
+		position += size;
+		return start;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int writeReference(final Object reference) {
+		if (reference instanceof Table) {
+			return writeTable((Table) reference);
+		} else if (reference instanceof String) {
+			final byte[] bytes;
+			try {
+				bytes = ((String) reference).getBytes("UTF-8");
+			} catch (final UnsupportedEncodingException exception) {
+				throw new AssertionError(exception); // every JVM supports UTF-8
+			}
+			align(4);
+			final int start = reserve(4);
+			putScalar(start, 4, bytes.length);
+			final int data = reserve(bytes.length + 1);
+			System.arraycopy(bytes, 0, buffer, data, bytes.length);
+			return start;
+		} else if (reference instanceof long[]) {
+			final long[] values = (long[]) reference;
+			align(8);
+			reserve(4); // so the structs after the length are 8 byte aligned
+			final int start = reserve(4);
+			putScalar(start, 4, values.length / 2);
+			for (final long value : values) {
+				putScalar(reserve(8), 8, value);
+			}
+			return start;
+		} else {
+			final List<Table> tables = (List<Table>) reference;
+			align(4);
+			final int start = reserve(4);
+			putScalar(start, 4, tables.size());
+			final int offsets = reserve(4 * tables.size());
+			for (int i = 0; i < tables.size(); i++) {
+				patch(offsets + 4 * i, writeTable(tables.get(i)));
+			}
+			return start;
+		}
+	}
+
+	/** Writes vtable and table, then the table's references, returning the table position. */
+	private int writeTable(final Table table) {
+		int fieldCount = 0;
+		for (final Field field : table.fields) {
+			fieldCount = Math.max(fieldCount, field.id + 1);
+		}
+		align(2);
+		final int vtable = reserve(4 + 2 * fieldCount);
+		align(8);
+		final int start = reserve(4);
+		putScalar(start, 4, start - vtable);
+
+		// Largest fields first, minimizing padding
+		final List<Field> fields = new ArrayList<Field>(table.fields);
+		Collections.sort(fields, new Comparator<Field>() {
+			@Override
+			public int compare(final Field field1, final Field field2) {
+				return field2.size - field1.size;
+			}
+		});
+		final int[] fieldPositions = new int[fields.size()];
+		for (int i = 0; i < fields.size(); i++) {
+			final Field field = fields.get(i);
+			align(field.size);
+			fieldPositions[i] = reserve(field.size);
+			putScalar(fieldPositions[i], field.size, field.value);
+			putScalar(vtable + 4 + 2 * field.id, 2, fieldPositions[i] - start);
+		}
+		putScalar(vtable, 2, 4 + 2 * fieldCount);
+		putScalar(vtable + 2, 2, position - start);
+
+		for (int i = 0; i < fields.size(); i++) {
+			if (fields.get(i).reference != null) {
+				patch(fieldPositions[i], writeReference(fields.get(i).reference));
+			}
+		}
+		return start;
+	}
+
+	private static class Field {
+		private final int id;
+		private final Object reference;
+		private final int size;
+		private final long value;
+
+		Field(final int id, final int size, final long value, final Object reference) {
+			this.id = id;
+			this.size = size;
+			this.value = value;
+			this.reference = reference;
+		}
+	}
+}
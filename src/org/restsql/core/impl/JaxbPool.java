@@ -0,0 +1,90 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Holds one JAXBContext per bound class with pools of idle marshallers and unmarshallers. Contexts are expensive to
+ * create and thread safe, whereas marshallers and unmarshallers are cheap but not thread safe, so callers borrow one and
+ * return it when done. Marshallers produce formatted output.
+ *
+ * @author Mark Sawers
+ */
+public class JaxbPool {
+	private static final int MAX_IDLE = 8;
+	private static final Map<Class<?>, JaxbPool> pools = new ConcurrentHashMap<Class<?>, JaxbPool>();
+
+	/** Returns pool for the class, creating its context on first access. */
+	public static JaxbPool getPool(final Class<?> boundClass) throws JAXBException {
+		JaxbPool pool = pools.get(boundClass);
+		if (pool == null) {
+			synchronized (pools) {
+				pool = pools.get(boundClass);
+				if (pool == null) {
+					pool = new JaxbPool(JAXBContext.newInstance(boundClass));
+					pools.put(boundClass, pool);
+				}
+			}
+		}
+		return pool;
+	}
+
+	private final JAXBContext context;
+	private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+	private final AtomicInteger marshallersIdle = new AtomicInteger();
+	private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+	private final AtomicInteger unmarshallersIdle = new AtomicInteger();
+
+	private JaxbPool(final JAXBContext context) {
+		this.context = context;
+	}
+
+	/** Borrows a marshaller, which must be returned with {@link #release(Marshaller)}. */
+	public Marshaller acquireMarshaller() throws JAXBException {
+		final Marshaller marshaller = marshallers.poll();
+		if (marshaller != null) {
+			marshallersIdle.decrementAndGet();
+			return marshaller;
+		}
+		final Marshaller newMarshaller = context.createMarshaller();
+		newMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+		return newMarshaller;
+	}
+
+	/** Borrows an unmarshaller, which must be returned with {@link #release(Unmarshaller)}. */
+	public Unmarshaller acquireUnmarshaller() throws JAXBException {
+		final Unmarshaller unmarshaller = unmarshallers.poll();
+		if (unmarshaller != null) {
+			unmarshallersIdle.decrementAndGet();
+			return unmarshaller;
+		}
+		return context.createUnmarshaller();
+	}
+
+	/** Returns marshaller to the pool, or discards it if the pool is full. */
+	public void release(final Marshaller marshaller) {
+		if (marshallersIdle.incrementAndGet() <= MAX_IDLE) {
+			marshallers.offer(marshaller);
+		} else {
+			marshallersIdle.decrementAndGet();
+		}
+	}
+
+	/** Returns unmarshaller to the pool, or discards it if the pool is full. */
+	public void release(final Unmarshaller unmarshaller) {
+		if (unmarshallersIdle.incrementAndGet() <= MAX_IDLE) {
+			unmarshallers.offer(unmarshaller);
+		} else {
+			unmarshallersIdle.decrementAndGet();
+		}
+	}
+}
@@ -95,12 +95,12 @@ public class JsonResponseSerializer implements ResponseSerializer {
 		if (!firstPair) {
 			string.append(", ");
 		}
-		string.append(JsonUtil.quote(name));
+		string.append(JsonUtil.quoteName(name));
 		string.append(": ");
 		if (value == null || value instanceof Number || value instanceof Boolean) {
 			string.append(value);
 		} else {
-			string.append(JsonUtil.quote(value.toString()));
+			JsonUtil.appendQuoted(string, value.toString());
 		}
 	}
 
@@ -28,12 +28,59 @@
 
 package org.restsql.core.impl;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Contains JSON processing utilities.
  * 
  * @author Mark Sawers
  */
 public class JsonUtil {
+	private static final boolean[] ESCAPED_CHARS = new boolean[128];
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final int MAX_QUOTED_NAMES = 1000;
+	private static final Map<String, String> quotedNames = new ConcurrentHashMap<String, String>();
+
+	static {
+		for (int c = 0; c < ' '; c++) {
+			ESCAPED_CHARS[c] = true;
+		}
+		ESCAPED_CHARS['"'] = true;
+		ESCAPED_CHARS['/'] = true;
+		ESCAPED_CHARS['\\'] = true;
+	}
+
+	/**
+	 * Appends string in double quotes with backslash sequences in all the right places, as {@link #quote(String)}
+	 * does. Runs of characters needing no escaping, usually the whole string, are appended in bulk.
+	 * 
+	 * @param sb buffer to append to
+	 * @param string a String, possibly null
+	 */
+	public static void appendQuoted(final StringBuilder sb, final String string) {
+		sb.append('"');
+		if (string != null) {
+			final int len = string.length();
+			int start = 0;
+			for (int i = 0; i < len; i++) {
+				final char c = string.charAt(i);
+				final boolean escaped;
+				if (c < '\u0080') {
+					escaped = ESCAPED_CHARS[c] && (c != '/' || i > 0 && string.charAt(i - 1) == '<');
+				} else {
+					escaped = c < '\u00a0' || (c >= '\u2000' && c < '\u2100');
+				}
+				if (escaped) {
+					sb.append(string, start, i);
+					appendEscaped(sb, c);
+					start = i + 1;
+				}
+			}
+			sb.append(string, start, len);
+		}
+		sb.append('"');
+	}
 
 	/**
 	 * Produce a string in double quotes with backslash sequences in all the right places. In JSON text, a string cannot
@@ -46,56 +93,61 @@ public class JsonUtil {
 		if (string == null || string.length() == 0) {
 			return "\"\"";
 		}
+		final StringBuilder sb = new StringBuilder(string.length() + 4);
+		appendQuoted(sb, string);
+		return sb.toString();
+	}
 
-		char b;
-		char c = 0;
-		String hhhh;
-		int i;
-		int len = string.length();
-		StringBuilder sb = new StringBuilder(len + 4);
-
-		sb.append('"');
-		for (i = 0; i < len; i += 1) {
-			b = c;
-			c = string.charAt(i);
-			switch (c) {
-				case '\\':
-				case '"':
-					sb.append('\\');
-					sb.append(c);
-					break;
-				case '/':
-					if (b == '<') {
-						sb.append('\\');
-					}
-					sb.append(c);
-					break;
-				case '\b':
-					sb.append("\\b");
-					break;
-				case '\t':
-					sb.append("\\t");
-					break;
-				case '\n':
-					sb.append("\\n");
-					break;
-				case '\f':
-					sb.append("\\f");
-					break;
-				case '\r':
-					sb.append("\\r");
-					break;
-				default:
-					if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
-						hhhh = "000" + Integer.toHexString(c);
-						sb.append("\\u" + hhhh.substring(hhhh.length() - 4));
-					} else {
-						sb.append(c);
-					}
+	/**
+	 * Returns quoted name, such as a column label, from a cache. Names are drawn from SQL Resource definitions so the
+	 * cache stays small, but it stops growing at a limit in case of unbounded names.
+	 * 
+	 * @param name a String
+	 * @return a String correctly formatted for insertion in a JSON text
+	 */
+	public static String quoteName(final String name) {
+		String quotedName = quotedNames.get(name);
+		if (quotedName == null) {
+			quotedName = quote(name);
+			if (quotedNames.size() < MAX_QUOTED_NAMES) {
+				quotedNames.put(name, quotedName);
 			}
 		}
-		sb.append('"');
-		return sb.toString();
+		return quotedName;
 	}
 
+	// Private utils
+
+	/** Appends backslash sequence for a character requiring one. */
+	private static void appendEscaped(final StringBuilder sb, final char c) {
+		switch (c) {
+			case '\\':
+			case '"':
+			case '/':
+				sb.append('\\');
+				sb.append(c);
+				break;
+			case '\b':
+				sb.append("\\b");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\f':
+				sb.append("\\f");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			default:
+				sb.append("\\u");
+				sb.append(HEX_DIGITS[c >> 12 & 0xf]);
+				sb.append(HEX_DIGITS[c >> 8 & 0xf]);
+				sb.append(HEX_DIGITS[c >> 4 & 0xf]);
+				sb.append(HEX_DIGITS[c & 0xf]);
+		}
+	}
 }
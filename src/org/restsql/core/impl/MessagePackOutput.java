@@ -0,0 +1,235 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.restsql.core.BinaryFormat;
+
+/**
+ * Encodes MessagePack values into a byte buffer, using the smallest representation of each. Dates and times use the
+ * timestamp extension type, -1. See <a href="https://github.com/msgpack/msgpack/blob/master/spec.md">the spec</a>.
+ *
+ * @author Mark Sawers
+ */
+class MessagePackOutput extends ByteArrayOutputStream {
+	static final byte TIMESTAMP_TYPE = -1;
+
+	MessagePackOutput(final int size) {
+		super(size);
+	}
+
+	/** Returns buffer as a binary string, one char per byte. */
+	String toBinaryString() {
+		try {
+			return toString(BinaryFormat.CHARSET);
+		} catch (final UnsupportedEncodingException exception) {
+			throw new AssertionError(exception); // every JVM supports ISO-8859-1
+		}
+	}
+
+	void writeArrayHeader(final int size) {
+		if (size < 16) {
+			write(0x90 | size);
+		} else if (size < 65536) {
+			write(0xdc);
+			writeShort(size);
+		} else {
+			write(0xdd);
+			writeInt(size);
+		}
+	}
+
+	void writeBinary(final byte[] value) {
+		if (value.length < 256) {
+			write(0xc4);
+			write(value.length);
+		} else if (value.length < 65536) {
+			write(0xc5);
+			writeShort(value.length);
+		} else {
+			write(0xc6);
+			writeInt(value.length);
+		}
+		write(value, 0, value.length);
+	}
+
+	void writeBoolean(final boolean value) {
+		write(value ? 0xc3 : 0xc2);
+	}
+
+	void writeDouble(final double value) {
+		write(0xcb);
+		writeLong(Double.doubleToLongBits(value));
+	}
+
+	void writeFloat(final float value) {
+		write(0xca);
+		writeInt(Float.floatToIntBits(value));
+	}
+
+	void writeInteger(final long value) {
+		if (value >= 0) {
+			if (value < 128) {
+				write((int) value);
+			} else if (value < 256) {
+				write(0xcc);
+				write((int) value);
+			} else if (value < 65536) {
+				write(0xcd);
+				writeShort((int) value);
+			} else if (value < 4294967296L) {
+				write(0xce);
+				writeInt((int) value);
+			} else {
+				write(0xcf);
+				writeLong(value);
+			}
+		} else {
+			if (value >= -32) {
+				write((int) value & 0xff);
+			} else if (value >= Byte.MIN_VALUE) {
+				write(0xd0);
+				write((int) value);
+			} else if (value >= Short.MIN_VALUE) {
+				write(0xd1);
+				writeShort((int) value);
+			} else if (value >= Integer.MIN_VALUE) {
+				write(0xd2);
+				writeInt((int) value);
+			} else {
+				write(0xd3);
+				writeLong(value);
+			}
+		}
+	}
+
+	void writeMapHeader(final int size) {
+		if (size < 16) {
+			write(0x80 | size);
+		} else if (size < 65536) {
+			write(0xde);
+			writeShort(size);
+		} else {
+			write(0xdf);
+			writeInt(size);
+		}
+	}
+
+	void writeNil() {
+		write(0xc0);
+	}
+
+	/**
+	 * Writes value in the type native to its class: integers, floats, booleans, timestamps for dates and times, binary
+	 * for byte arrays. Decimals are written as integers if integral, otherwise as strings to preserve their precision.
+	 * Other values are written as strings.
+	 */
+	void writeObject(final Object value) {
+		if (value == null) {
+			writeNil();
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			writeInteger(((Number) value).longValue());
+		} else if (value instanceof Double) {
+			writeDouble(((Double) value).doubleValue());
+		} else if (value instanceof Float) {
+			writeFloat(((Float) value).floatValue());
+		} else if (value instanceof Boolean) {
+			writeBoolean(((Boolean) value).booleanValue());
+		} else if (value instanceof BigDecimal || value instanceof BigInteger) {
+			final BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(
+					(BigInteger) value);
+			try {
+				writeInteger(decimal.longValueExact());
+			} catch (final ArithmeticException exception) {
+				writeString(decimal.toPlainString());
+			}
+		} else if (value instanceof java.sql.Time) {
+			writeString(value.toString());
+		} else if (value instanceof Date) {
+			writeTimestamp((Date) value);
+		} else if (value instanceof byte[]) {
+			writeBinary((byte[]) value);
+		} else {
+			writeString(value.toString());
+		}
+	}
+
+	void writeString(final String value) {
+		final byte[] bytes;
+		try {
+			bytes = value.getBytes("UTF-8");
+		} catch (final UnsupportedEncodingException exception) {
+			throw new AssertionError(exception); // every JVM supports UTF-8
+		}
+		if (bytes.length < 32) {
+			write(0xa0 | bytes.length);
+		} else if (bytes.length < 256) {
+			write(0xd9);
+			write(bytes.length);
+		} else if (bytes.length < 65536) {
+			write(0xda);
+			writeShort(bytes.length);
+		} else {
+			write(0xdb);
+			writeInt(bytes.length);
+		}
+		write(bytes, 0, bytes.length);
+	}
+
+	/** Writes timestamp extension in the 32, 64 or 96 bit form. */
+	void writeTimestamp(final long seconds, final int nanos) {
+		if (seconds >= 0 && seconds < (1L << 34)) {
+			if (nanos == 0 && seconds < 4294967296L) {
+				write(0xd6);
+				write(TIMESTAMP_TYPE);
+				writeInt((int) seconds);
+			} else {
+				write(0xd7);
+				write(TIMESTAMP_TYPE);
+				writeLong(((long) nanos << 34) | seconds);
+			}
+		} else {
+			write(0xc7);
+			write(12);
+			write(TIMESTAMP_TYPE);
+			writeInt(nanos);
+			writeLong(seconds);
+		}
+	}
+
+	// Private utils
+
+	/** Writes date with whole seconds rounded down, so the nanoseconds are always positive. */
+	private void writeTimestamp(final Date value) {
+		long seconds = value.getTime() / 1000;
+		int millis = (int) (value.getTime() % 1000);
+		if (millis < 0) {
+			seconds--;
+			millis += 1000;
+		}
+		writeTimestamp(seconds, value instanceof java.sql.Timestamp ? ((java.sql.Timestamp) value).getNanos()
+				: millis * 1000000);
+	}
+
+	private void writeInt(final int value) {
+		write(value >>> 24);
+		write(value >>> 16);
+		write(value >>> 8);
+		write(value);
+	}
+
+	private void writeLong(final long value) {
+		writeInt((int) (value >>> 32));
+		writeInt((int) value);
+	}
+
+	private void writeShort(final int value) {
+		write(value >>> 8);
+		write(value);
+	}
+}
@@ -0,0 +1,279 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.ParseException;
+import org.restsql.core.BinaryFormat;
+import org.restsql.core.HttpRequestAttributes;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.NameValuePair;
+import org.restsql.core.RequestDeserializer;
+import org.restsql.core.RequestLogger;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceException;
+import org.restsql.core.Request.Type;
+
+/**
+ * Processes requests represented in MessagePack, in a binary string. The document has the same shape as the JSON
+ * format, described in {@link JsonRequestDeserializer}, whose handler processes it. Timestamp extension values are
+ * converted to JDBC timestamp escape format, <code>yyyy-mm-dd hh:mm:ss.fffffffff</code>, and binary values are read
+ * as UTF-8 strings. Other extension types are not supported.
+ *
+ * @author Mark Sawers
+ */
+public class MessagePackRequestDeserializer implements RequestDeserializer, BinaryFormat {
+
+	@Override
+	public int execWrite(final HttpRequestAttributes httpAttributes, final Type requestType,
+			final List<NameValuePair> resIds, final SqlResource sqlResource, final String requestBody,
+			final RequestLogger requestLogger) throws SqlResourceException {
+		final JsonRequestDeserializer.Handler handler = new JsonRequestDeserializer().new Handler(httpAttributes,
+				requestType, resIds, sqlResource, requestLogger);
+		try {
+			final Decoder decoder = new Decoder(requestBody.getBytes(CHARSET), handler);
+			handler.startJSON();
+			decoder.decodeValue();
+			if (decoder.position < decoder.bytes.length) {
+				throw new InvalidRequestException("Error parsing request body: unexpected data at position "
+						+ decoder.position);
+			}
+			handler.endJSON();
+		} catch (final ArrayIndexOutOfBoundsException exception) {
+			throw new InvalidRequestException("Error parsing request body: unexpected end of data");
+		} catch (final ParseException exception) {
+			throw new InvalidRequestException("Error parsing request body: " + exception.toString());
+		} catch (final UnsupportedEncodingException exception) {
+			throw new InvalidRequestException("Error parsing request body: " + exception.toString());
+		} catch (final IOException exception) {
+			// Not thrown by the handler
+		}
+		final SqlResourceException handlerException = handler.getHandlerException();
+		if (handlerException != null) {
+			throw handlerException;
+		}
+		return handler.getRowsAffected();
+	}
+
+	@Override
+	public String getSupportedMediaType() {
+		return "application/x-msgpack";
+	}
+
+	/** Decodes MessagePack values, reporting them to a JSON content handler. */
+	static class Decoder {
+		private static final int MAX_DEPTH = 8;
+
+		private final byte[] bytes;
+		private int depth;
+		private final ContentHandler handler;
+		private int position;
+
+		Decoder(final byte[] bytes, final ContentHandler handler) {
+			this.bytes = bytes;
+			this.handler = handler;
+		}
+
+		void decodeValue() throws InvalidRequestException, ParseException, IOException {
+			final int type = (int) readUnsigned(1);
+			if (type <= 0x7f) {
+				handler.primitive(Long.valueOf(type));
+			} else if (type <= 0x8f) {
+				decodeMap(type & 0x0f);
+			} else if (type <= 0x9f) {
+				decodeArray(type & 0x0f);
+			} else if (type <= 0xbf) {
+				handler.primitive(readString(type & 0x1f));
+			} else if (type >= 0xe0) {
+				handler.primitive(Long.valueOf((byte) type));
+			} else {
+				switch (type) {
+					case 0xc0:
+						handler.primitive(null);
+						break;
+					case 0xc2:
+						handler.primitive(Boolean.FALSE);
+						break;
+					case 0xc3:
+						handler.primitive(Boolean.TRUE);
+						break;
+					case 0xc4:
+					case 0xc5:
+					case 0xc6:
+						handler.primitive(readString(readLength(type - 0xc4)));
+						break;
+					case 0xc7:
+					case 0xc8:
+					case 0xc9:
+						final int length = readLength(type - 0xc7);
+						handler.primitive(readExtension(length));
+						break;
+					case 0xca:
+						handler.primitive(Float.valueOf(Float.intBitsToFloat((int) readUnsigned(4))));
+						break;
+					case 0xcb:
+						handler.primitive(Double.valueOf(Double.longBitsToDouble(readUnsigned(8))));
+						break;
+					case 0xcc:
+						handler.primitive(Long.valueOf(readUnsigned(1)));
+						break;
+					case 0xcd:
+						handler.primitive(Long.valueOf(readUnsigned(2)));
+						break;
+					case 0xce:
+						handler.primitive(Long.valueOf(readUnsigned(4)));
+						break;
+					case 0xcf:
+						final long uint64 = readUnsigned(8);
+						handler.primitive(uint64 >= 0 ? (Object) Long.valueOf(uint64) : BigInteger.valueOf(uint64)
+								.add(BigInteger.ONE.shiftLeft(64)));
+						break;
+					case 0xd0:
+						handler.primitive(Long.valueOf((byte) readUnsigned(1)));
+						break;
+					case 0xd1:
+						handler.primitive(Long.valueOf((short) readUnsigned(2)));
+						break;
+					case 0xd2:
+						handler.primitive(Long.valueOf((int) readUnsigned(4)));
+						break;
+					case 0xd3:
+						handler.primitive(Long.valueOf(readUnsigned(8)));
+						break;
+					case 0xd4:
+					case 0xd5:
+					case 0xd6:
+					case 0xd7:
+					case 0xd8:
+						handler.primitive(readExtension(1 << (type - 0xd4)));
+						break;
+					case 0xd9:
+					case 0xda:
+					case 0xdb:
+						handler.primitive(readString(readLength(type - 0xd9)));
+						break;
+					case 0xdc:
+					case 0xdd:
+						decodeArray(readLength(type - 0xdc + 1));
+						break;
+					case 0xde:
+					case 0xdf:
+						decodeMap(readLength(type - 0xde + 1));
+						break;
+					default:
+						throw new InvalidRequestException("Error parsing request body: invalid type 0x"
+								+ Integer.toHexString(type) + " at position " + (position - 1));
+				}
+			}
+		}
+
+		// Private utils
+
+		private void decodeArray(final int size) throws InvalidRequestException, ParseException, IOException {
+			enter();
+			handler.startArray();
+			for (int i = 0; i < size; i++) {
+				decodeValue();
+			}
+			handler.endArray();
+			depth--;
+		}
+
+		private void decodeMap(final int size) throws InvalidRequestException, ParseException, IOException {
+			enter();
+			handler.startObject();
+			for (int i = 0; i < size; i++) {
+				final int type = (int) readUnsigned(1);
+				final String key;
+				if (type >= 0xa0 && type <= 0xbf) {
+					key = readString(type & 0x1f);
+				} else if (type >= 0xd9 && type <= 0xdb) {
+					key = readString(readLength(type - 0xd9));
+				} else {
+					throw new InvalidRequestException(
+							"Error parsing request body: map key is not a string at position " + (position - 1));
+				}
+				handler.startObjectEntry(key);
+				decodeValue();
+				handler.endObjectEntry();
+			}
+			handler.endObject();
+			depth--;
+		}
+
+		/** Limits nesting to bound the recursion. Documents nest five levels at most. */
+		private void enter() throws InvalidRequestException {
+			if (++depth > MAX_DEPTH) {
+				throw new InvalidRequestException("Error parsing request body: nesting exceeds " + MAX_DEPTH
+						+ " levels at position " + (position - 1));
+			}
+		}
+
+		/** Reads extension type and data, returning a timestamp for the timestamp type. */
+		private String readExtension(final int length) throws InvalidRequestException {
+			final int start = position - 1;
+			final byte extensionType = (byte) readUnsigned(1);
+			if (extensionType != MessagePackOutput.TIMESTAMP_TYPE) {
+				throw new InvalidRequestException("Error parsing request body: unsupported extension type "
+						+ extensionType + " at position " + start);
+			}
+			final long seconds;
+			final int nanos;
+			if (length == 4) {
+				seconds = readUnsigned(4);
+				nanos = 0;
+			} else if (length == 8) {
+				final long value = readUnsigned(8);
+				nanos = (int) (value >>> 34);
+				seconds = value & 0x3ffffffffL;
+			} else if (length == 12) {
+				nanos = (int) readUnsigned(4);
+				seconds = readUnsigned(8);
+			} else {
+				throw new InvalidRequestException("Error parsing request body: invalid timestamp length " + length
+						+ " at position " + start);
+			}
+			final Timestamp timestamp = new Timestamp(seconds * 1000);
+			timestamp.setNanos(nanos);
+			return timestamp.toString();
+		}
+
+		/** Reads length of 1, 2 or 4 bytes for exponents 0, 1 and 2. */
+		private int readLength(final int exponent) throws InvalidRequestException {
+			final long length = readUnsigned(1 << exponent);
+			if (length > bytes.length - position) {
+				throw new InvalidRequestException("Error parsing request body: length " + length
+						+ " exceeds data at position " + position);
+			}
+			return (int) length;
+		}
+
+		private String readString(final int length) throws InvalidRequestException {
+			if (length > bytes.length - position) {
+				throw new InvalidRequestException("Error parsing request body: length " + length
+						+ " exceeds data at position " + position);
+			}
+			try {
+				final String string = new String(bytes, position, length, "UTF-8");
+				position += length;
+				return string;
+			} catch (final UnsupportedEncodingException exception) {
+				throw new AssertionError(exception); // every JVM supports UTF-8
+			}
+		}
+
+		/** Reads big-endian integer of 1 to 8 bytes. */
+		private long readUnsigned(final int length) {
+			long value = 0;
+			for (int i = 0; i < length; i++) {
+				value = value << 8 | bytes[position++] & 0xff;
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import org.restsql.core.BinaryFormat;
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.ResponseSerializer;
+import org.restsql.core.SqlResource;
+
+/**
+ * Converts read/write results to MessagePack, in a binary string. The document has the same shape as the JSON format,
+ * a map holding an array of row maps, with any children in an array in each parent map. Values keep their native
+ * types: integers, floats and booleans are encoded as such, and dates and timestamps with the timestamp extension
+ * type. See {@link MessagePackOutput} for details.
+ *
+ * @author Mark Sawers
+ */
+public class MessagePackResponseSerializer implements ResponseSerializer, BinaryFormat {
+
+	@Override
+	public String getSupportedMediaType() {
+		return "application/x-msgpack";
+	}
+
+	/**
+	 * Converts flat select results to a MessagePack map with an array of rows.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @return binary string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
+			throws SQLException {
+		final List<ColumnMetaData> columns = sqlResource.getMetaData().getAllReadColumns();
+		int columnCount = 0;
+		for (final ColumnMetaData column : columns) {
+			if (!column.isNonqueriedForeignKey()) {
+				columnCount++;
+			}
+		}
+
+		// Rows are buffered separately since the array header holds the row count
+		final MessagePackOutput rows = new MessagePackOutput(1000);
+		int rowCount = 0;
+		while (resultSet.next()) {
+			rowCount++;
+			rows.writeMapHeader(columnCount);
+			for (final ColumnMetaData column : columns) {
+				if (!column.isNonqueriedForeignKey()) {
+					rows.writeString(column.getColumnLabel());
+					writeValue(column, resultSet, rows);
+				}
+			}
+		}
+
+		final MessagePackOutput output = new MessagePackOutput(rows.size() + 100);
+		writeReadDocStart(sqlResource, rowCount, output);
+		output.write(rows.toByteArray(), 0, rows.size());
+		return output.toBinaryString();
+	}
+
+	/**
+	 * Converts hierarchical select results to a MessagePack map with an array of parent rows.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param results results
+	 * @return binary string
+	 */
+	@Override
+	public String serializeReadHierarchical(final SqlResource sqlResource,
+			final List<Map<String, Object>> results) {
+		final MessagePackOutput output = new MessagePackOutput(results.size() * 100);
+		writeReadDocStart(sqlResource, results.size(), output);
+		writeRows(results, output);
+		return output.toBinaryString();
+	}
+
+	/**
+	 * Converts write results to a MessagePack map.
+	 *
+	 * @param rowsAffected rows affected
+	 */
+	@Override
+	public String serializeWrite(final int rowsAffected) {
+		final MessagePackOutput output = new MessagePackOutput(20);
+		output.writeMapHeader(1);
+		output.writeString("rowsAffected");
+		output.writeInteger(rowsAffected);
+		return output.toBinaryString();
+	}
+
+	// Private utils
+
+	private void writeReadDocStart(final SqlResource sqlResource, final int rowCount,
+			final MessagePackOutput output) {
+		output.writeMapHeader(1);
+		output.writeString(sqlResource.getMetaData().getParent().getTableAlias() + "s");
+		output.writeArrayHeader(rowCount);
+	}
+
+	/** One-level recursive method to write hierarchical rows, with children in a nested array. */
+	@SuppressWarnings("unchecked")
+	private void writeRows(final List<Map<String, Object>> rows, final MessagePackOutput output) {
+		for (final Map<String, Object> row : rows) {
+			output.writeMapHeader(row.size());
+			for (final String columnLabel : row.keySet()) {
+				output.writeString(columnLabel);
+				final Object value = row.get(columnLabel);
+				if (value instanceof List<?>) {
+					final List<Map<String, Object>> childRows = (List<Map<String, Object>>) value;
+					output.writeArrayHeader(childRows.size());
+					writeRows(childRows, output);
+				} else {
+					output.writeObject(value);
+				}
+			}
+		}
+	}
+
+	/** Writes column value using the primitive getter for its type, if any, avoiding boxing. */
+	private void writeValue(final ColumnMetaData column, final ResultSet resultSet, final MessagePackOutput output)
+			throws SQLException {
+		switch (column.getColumnType()) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				final long longValue = resultSet.getLong(column.getColumnNumber());
+				if (resultSet.wasNull()) {
+					output.writeNil();
+				} else {
+					output.writeInteger(longValue);
+				}
+				break;
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				final double doubleValue = resultSet.getDouble(column.getColumnNumber());
+				if (resultSet.wasNull()) {
+					output.writeNil();
+				} else {
+					output.writeDouble(doubleValue);
+				}
+				break;
+			case Types.REAL:
+				final float floatValue = resultSet.getFloat(column.getColumnNumber());
+				if (resultSet.wasNull()) {
+					output.writeNil();
+				} else {
+					output.writeFloat(floatValue);
+				}
+				break;
+			case Types.BOOLEAN:
+				final boolean booleanValue = resultSet.getBoolean(column.getColumnNumber());
+				if (resultSet.wasNull()) {
+					output.writeNil();
+				} else {
+					output.writeBoolean(booleanValue);
+				}
+				break;
+			default:
+				output.writeObject(SqlUtils.getObjectByColumnNumber(column, resultSet));
+		}
+	}
+}
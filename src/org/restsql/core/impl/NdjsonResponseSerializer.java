@@ -0,0 +1,229 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Config;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceMetaData;
+import org.restsql.core.StreamingResponseSerializer;
+
+/**
+ * Converts read/write results to newline-delimited JSON, one object per line. Flat resources have a line per row and
+ * hierarchical resources a line per parent, with the children embedded as in the JSON format. For example:
+ *
+ * <pre>
+ * { "film_id": 1, "title": "ACADEMY DINOSAUR" }
+ * { "film_id": 2, "title": "ACE GOLDFINGER" }
+ * </pre>
+ *
+ * @author Mark Sawers
+ */
+public class NdjsonResponseSerializer extends JsonResponseSerializer implements StreamingResponseSerializer {
+	private final int flushInterval = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_RESPONSE_FLUSH_INTERVAL, Config.DEFAULT_RESPONSE_FLUSH_INTERVAL));
+
+	@Override
+	public String getSupportedMediaType() {
+		return "application/x-ndjson";
+	}
+
+	/**
+	 * Writes flat or hierarchical select results, one line per row or parent.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param writer output
+	 */
+	@Override
+	public void serializeRead(final SqlResource sqlResource, final ResultSet resultSet, final Writer writer)
+			throws SQLException, IOException {
+		if (sqlResource.getMetaData().isHierarchical()) {
+			serializeReadHierarchical(sqlResource, resultSet, writer);
+		} else {
+			serializeReadFlat(sqlResource, resultSet, writer);
+		}
+	}
+
+	/**
+	 * Converts flat select results to lines of JSON objects.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @return NDJSON string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
+			throws SQLException {
+		final StringWriter writer = new StringWriter(1000);
+		try {
+			serializeReadFlat(sqlResource, resultSet, writer);
+		} catch (final IOException exception) {
+			// Not thrown by StringWriter
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Converts hierarchical select results to lines of JSON objects, one per parent.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param results results
+	 * @return NDJSON string
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public String serializeReadHierarchical(final SqlResource sqlResource,
+			final List<Map<String, Object>> results) {
+		final String childRowElementName = sqlResource.getMetaData().getChild().getTableAlias() + "s";
+		final StringBuilder string = new StringBuilder(results.size() * 100);
+		for (final Map<String, Object> row : results) {
+			string.append("{ ");
+			boolean firstPair = true;
+			for (final String columnLabel : row.keySet()) {
+				final Object value = row.get(columnLabel);
+				if (!(value instanceof List<?>)) {
+					appendNameValuePair(firstPair, string, columnLabel, value);
+					firstPair = false;
+				}
+			}
+			appendChildRowsStart(childRowElementName, string);
+			boolean firstChild = true;
+			for (final Map<String, Object> childRow : (List<Map<String, Object>>) row.get(childRowElementName)) {
+				appendChildRowSeparator(firstChild, string);
+				firstChild = false;
+				string.append("{ ");
+				firstPair = true;
+				for (final String columnLabel : childRow.keySet()) {
+					appendNameValuePair(firstPair, string, columnLabel, childRow.get(columnLabel));
+					firstPair = false;
+				}
+				string.append(" }");
+			}
+			string.append("] }\n");
+		}
+		return string.toString();
+	}
+
+	/**
+	 * Converts write results to a JSON object line.
+	 *
+	 * @param rowsAffected rows affected
+	 */
+	@Override
+	public String serializeWrite(final int rowsAffected) {
+		return super.serializeWrite(rowsAffected) + '\n';
+	}
+
+	// Private utils
+
+	private void appendChildRowSeparator(final boolean firstChild, final StringBuilder string) {
+		if (!firstChild) {
+			string.append(", ");
+		}
+	}
+
+	private void appendChildRowsStart(final String childRowElementName, final StringBuilder string) {
+		string.append(", \"");
+		string.append(childRowElementName);
+		string.append("\": [");
+	}
+
+	private void serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet, final Writer writer)
+			throws SQLException, IOException {
+		final List<ColumnMetaData> columns = sqlResource.getMetaData().getAllReadColumns();
+		final StringBuilder line = new StringBuilder(200);
+		int rowCount = 0;
+		while (resultSet.next()) {
+			line.append("{ ");
+			boolean firstPair = true;
+			for (final ColumnMetaData column : columns) {
+				if (!column.isNonqueriedForeignKey()) {
+					appendNameValuePair(firstPair, line, column.getColumnLabel(),
+							SqlUtils.getObjectByColumnNumber(column, resultSet));
+					firstPair = false;
+				}
+			}
+			line.append(" }\n");
+			writeLine(line, writer, ++rowCount);
+		}
+	}
+
+	/**
+	 * Writes a line per parent as the parent changes, holding only the current parent's children. Rows are ordered by
+	 * parent primary key, so each parent's rows are adjacent.
+	 */
+	private void serializeReadHierarchical(final SqlResource sqlResource, final ResultSet resultSet,
+			final Writer writer) throws SQLException, IOException {
+		final SqlResourceMetaData metaData = sqlResource.getMetaData();
+		final String childRowElementName = metaData.getChild().getTableAlias() + "s";
+		final StringBuilder line = new StringBuilder(500);
+		List<Object> currentParentPkValues = null;
+		boolean firstChild = true;
+		int parentCount = 0;
+		while (resultSet.next()) {
+			final List<Object> parentPkValues = new ArrayList<Object>(metaData.getParent().getPrimaryKeys().size());
+			for (final ColumnMetaData column : metaData.getParent().getPrimaryKeys()) {
+				parentPkValues.add(SqlUtils.getObjectByColumnLabel(column, resultSet));
+			}
+			if (!parentPkValues.equals(currentParentPkValues)) {
+				if (currentParentPkValues != null) {
+					line.append("] }\n");
+					writeLine(line, writer, ++parentCount);
+				}
+				currentParentPkValues = parentPkValues;
+				line.append("{ ");
+				boolean firstPair = true;
+				for (final ColumnMetaData column : metaData.getParentReadColumns()) {
+					appendNameValuePair(firstPair, line, column.getColumnLabel(), SqlUtils.getObjectByColumnLabel(
+							column, resultSet));
+					firstPair = false;
+				}
+				appendChildRowsStart(childRowElementName, line);
+				firstChild = true;
+			}
+
+			// Append the child unless outer join found none
+			boolean nullPk = false;
+			final int childStart = line.length();
+			appendChildRowSeparator(firstChild, line);
+			line.append("{ ");
+			boolean firstPair = true;
+			for (final ColumnMetaData column : metaData.getChildReadColumns()) {
+				final Object value = SqlUtils.getObjectByColumnLabel(column, resultSet);
+				if (column.isPrimaryKey()) {
+					nullPk = value == null;
+				}
+				appendNameValuePair(firstPair, line, column.getColumnLabel(), value);
+				firstPair = false;
+			}
+			line.append(" }");
+			if (nullPk) {
+				line.setLength(childStart);
+			} else {
+				firstChild = false;
+			}
+		}
+		if (currentParentPkValues != null) {
+			line.append("] }\n");
+			writeLine(line, writer, ++parentCount);
+		}
+	}
+
+	/** Writes and clears the line, flushing the writer at the flush interval. */
+	private void writeLine(final StringBuilder line, final Writer writer, final int lineCount) throws IOException {
+		writer.append(line);
+		line.setLength(0);
+		if (flushInterval > 0 && lineCount % flushInterval == 0) {
+			writer.flush();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restsql.core.Config;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceException;
+
+/**
+ * Coalesces identical concurrent reads, keyed on the SQL Resource instance, generated SQL and response media type. The
+ * instance identifies the resource's element names, hierarchy and default database, and differs after a reload, so
+ * reads of different resources or definition versions generating the same SQL are not shared. The first request
+ * executes the read and the requests arriving while it is in flight wait for and share its serialized result or
+ * exception. There is no caching: the key is released as soon as the read completes. A coalesced request may see a
+ * result from an execution that started shortly before it arrived, so coalescing is enabled with
+ * <code>read.coalescing</code>.
+ *
+ * @author Mark Sawers
+ */
+public class ReadCoalescer {
+	private static final AtomicLong coalesced = new AtomicLong();
+	private static final boolean enabled = Boolean.valueOf(Config.properties.getProperty(Config.KEY_READ_COALESCING,
+			Config.DEFAULT_READ_COALESCING));
+	private static final AtomicLong executed = new AtomicLong();
+	private static final ConcurrentMap<Key, FutureTask<String>> inFlight = new ConcurrentHashMap<Key, FutureTask<String>>();
+
+	/** Returns string representation of coalescing counters. */
+	public static String dumpStatistics() {
+		final StringBuilder dump = new StringBuilder(200);
+		dump.append("Read coalescing\n");
+		dump.append("\tenabled: ");
+		dump.append(enabled);
+		dump.append("\n\tin flight: ");
+		dump.append(inFlight.size());
+		dump.append("\n\texecuted: ");
+		dump.append(executed.get());
+		dump.append("\n\tcoalesced: ");
+		dump.append(coalesced.get());
+		dump.append('\n');
+		return dump.toString();
+	}
+
+	static boolean isEnabled() {
+		return enabled;
+	}
+
+	/** Executes the read, or waits for an identical read in flight and returns its result. */
+	static String read(final SqlResource sqlResource, final String sql, final String mediaType,
+			final Callable<String> read) throws SqlResourceException {
+		final Key key = new Key(sqlResource, sql, mediaType);
+		final FutureTask<String> task = new FutureTask<String>(read);
+		final FutureTask<String> existingTask = inFlight.putIfAbsent(key, task);
+		if (existingTask != null) {
+			coalesced.incrementAndGet();
+			return getResult(existingTask);
+		}
+		executed.incrementAndGet();
+		try {
+			task.run();
+		} finally {
+			inFlight.remove(key, task);
+		}
+		return getResult(task);
+	}
+
+	private static String getResult(final FutureTask<String> task) throws SqlResourceException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (final InterruptedException exception) {
+					// The shared read completes regardless, so wait for it
+					interrupted = true;
+				}
+			}
+		} catch (final ExecutionException exception) {
+			throw DatabaseExecutor.toSqlResourceException(exception);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/** Identifies a read by resource instance, SQL and media type. */
+	private static class Key {
+		private final String mediaType;
+		private final String sql;
+		private final SqlResource sqlResource;
+
+		Key(final SqlResource sqlResource, final String sql, final String mediaType) {
+			this.sqlResource = sqlResource;
+			this.sql = sql;
+			this.mediaType = mediaType;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			final Key key = (Key) object;
+			return sqlResource == key.sqlResource && sql.equals(key.sql) && mediaType.equals(key.mediaType);
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * System.identityHashCode(sqlResource) + sql.hashCode()) * 31 + mediaType.hashCode();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restsql.core.Config;
+import org.restsql.core.Factory.ReplicaConnectionFactory;
+
+/**
+ * Non-pooled connection factory that routes reads to read replicas. Writes and meta data queries use the primary
+ * database, configured as for {@link ConnectionFactoryImpl}. Replica urls are listed in
+ * <code>database.replica.urls</code> and use the same driver, user and password. Reads are routed round-robin or to the
+ * replica with the fewest open connections, depending on <code>database.replica.routing</code>. A replica that fails to
+ * connect is skipped for the next few seconds, and the primary is used if all replicas are unavailable.
+ *
+ * @author Mark Sawers
+ */
+public class ReplicaConnectionFactoryImpl extends ConnectionFactoryImpl implements ReplicaConnectionFactory {
+	private static final long RETRY_INTERVAL = 5000;
+	private static final String ROUTING_LEAST_LOADED = "leastLoaded";
+
+	private final boolean leastLoaded;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+	private final Replica[] replicas;
+
+	public ReplicaConnectionFactoryImpl() {
+		final List<Replica> replicaList = new ArrayList<Replica>();
+		final String urls = Config.properties.getProperty(Config.KEY_DATABASE_REPLICA_URLS, null);
+		if (urls != null) {
+			for (final String url : urls.split(",")) {
+				if (url.trim().length() > 0) {
+					replicaList.add(new Replica(url.trim()));
+				}
+			}
+		}
+		replicas = replicaList.toArray(new Replica[replicaList.size()]);
+		leastLoaded = ROUTING_LEAST_LOADED.equals(Config.properties.getProperty(Config.KEY_DATABASE_REPLICA_ROUTING,
+				Config.DEFAULT_DATABASE_REPLICA_ROUTING));
+	}
+
+	/** Returns connection to a replica, or to the primary if there are no replicas or none is reachable. */
+	@Override
+	public Connection getReadConnection(final String defaultDatabase) throws SQLException {
+		if (replicas.length == 0) {
+			return getConnection(defaultDatabase);
+		}
+		Replica replica;
+		while ((replica = selectReplica()) != null) {
+			try {
+				return replica.connect(defaultDatabase);
+			} catch (final SQLException exception) {
+				replica.retryTime = System.currentTimeMillis() + RETRY_INTERVAL;
+				Config.logger.warn("Failed to connect to replica " + replica.url + " -- " + exception.getMessage());
+			}
+		}
+		return getConnection(defaultDatabase);
+	}
+
+	// Private utils
+
+	/** Returns next available replica per the routing policy, or null if none is available. */
+	private Replica selectReplica() {
+		final long now = System.currentTimeMillis();
+		// Start from a rotating index so that ties are spread across replicas
+		final int start = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % replicas.length;
+		Replica selected = null;
+		for (int i = 0; i < replicas.length; i++) {
+			final Replica replica = replicas[(start + i) % replicas.length];
+			if (replica.retryTime <= now) {
+				if (!leastLoaded) {
+					return replica;
+				} else if (selected == null
+						|| replica.openConnections.get() < selected.openConnections.get()) {
+					selected = replica;
+				}
+			}
+		}
+		return selected;
+	}
+
+	/** Replica url, driver and count of open connections. */
+	private class Replica {
+		private volatile Driver driver;
+		private final AtomicInteger openConnections = new AtomicInteger();
+		/** Time before which the replica is skipped after a connection failure. */
+		private volatile long retryTime;
+		private final String url;
+
+		Replica(final String url) {
+			this.url = url;
+		}
+
+		/** Connects and wraps the connection to count it until it is closed. */
+		Connection connect(final String defaultDatabase) throws SQLException {
+			if (driver == null) {
+				driver = getDriver(url);
+			}
+			final Connection connection = ReplicaConnectionFactoryImpl.this.connect(driver, url, defaultDatabase);
+			openConnections.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(ReplicaConnectionFactoryImpl.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new InvocationHandler() {
+						private final AtomicBoolean closed = new AtomicBoolean();
+
+						@Override
+						public Object invoke(final Object proxy, final Method method, final Object[] args)
+								throws Throwable {
+							if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+								openConnections.decrementAndGet();
+							}
+							try {
+								return method.invoke(connection, args);
+							} catch (final InvocationTargetException exception) {
+								throw exception.getCause();
+							}
+						}
+					});
+		}
+	}
+}
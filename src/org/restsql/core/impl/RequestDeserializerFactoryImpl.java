@@ -13,6 +13,7 @@ import org.restsql.core.Factory.RequestDeserializerFactory;
 public class RequestDeserializerFactoryImpl implements RequestDeserializerFactory {
 	private static XmlRequestDeserializer xmlRequestDeserializer = new XmlRequestDeserializer();
 	private static JsonRequestDeserializer jsonRequestDeserializer = new JsonRequestDeserializer();
+	private static MessagePackRequestDeserializer messagePackRequestDeserializer = new MessagePackRequestDeserializer();
 
 	/**
 	 * Returns request deserializer for media type.
@@ -25,6 +26,8 @@ public class RequestDeserializerFactoryImpl implements RequestDeserializerFactor
 			return xmlRequestDeserializer;
 		} else if (mediaType.equals("application/json")) {
 			return jsonRequestDeserializer;
+		} else if (mediaType.equals("application/x-msgpack")) {
+			return messagePackRequestDeserializer;
 		} else {
 			throw new SqlResourceException("No deserializer found for media type " + mediaType);
 		}
@@ -12,7 +12,11 @@ import org.restsql.core.SqlResourceException;
  */
 public class ResponseSerializerFactoryImpl implements ResponseSerializerFactory {
 	private static final ResponseSerializer xmlResponseSerializer = new XmlResponseSerializer();
+	private static final ResponseSerializer arrowResponseSerializer = new ArrowResponseSerializer();
+	private static final ResponseSerializer csvResponseSerializer = new CsvResponseSerializer();
 	private static final ResponseSerializer jsonResponseSerializer = new JsonResponseSerializer();
+	private static final ResponseSerializer messagePackResponseSerializer = new MessagePackResponseSerializer();
+	private static final ResponseSerializer ndjsonResponseSerializer = new NdjsonResponseSerializer();
 
 	/**
 	 * Returns response serializer for media type.
@@ -25,6 +29,14 @@ public class ResponseSerializerFactoryImpl implements ResponseSerializerFactory
 			return xmlResponseSerializer;
 		} else if (mediaType.equals("application/json")) {
 			return jsonResponseSerializer;
+		} else if (mediaType.equals("application/x-ndjson")) {
+			return ndjsonResponseSerializer;
+		} else if (mediaType.equals("text/csv")) {
+			return csvResponseSerializer;
+		} else if (mediaType.equals("application/x-msgpack")) {
+			return messagePackResponseSerializer;
+		} else if (mediaType.equals("application/vnd.apache.arrow.stream")) {
+			return arrowResponseSerializer;
 		} else {
 			throw new SqlResourceException("No serializer found for media type " + mediaType);
 		}
@@ -0,0 +1,106 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restsql.core.Config;
+import org.restsql.core.QueryTimeoutException;
+import org.restsql.core.SqlResourceException;
+
+/**
+ * Tracks executing statements so that they can be listed and cancelled from another thread, for example by an
+ * administrator or a container hook that detects a disconnected client. Also classifies driver exceptions caused by
+ * query timeouts and cancellation.
+ *
+ * @author Mark Sawers
+ */
+public class RunningStatements {
+	/** SQL states for cancelled statements: PostgreSQL query_canceled, MySQL query interrupted and timeout. */
+	private static final String[] CANCELLED_SQL_STATES = { "57014", "70100", "S1T00" };
+	private static final AtomicLong nextId = new AtomicLong();
+	private static final Map<Long, RunningStatement> statements = new ConcurrentSkipListMap<Long, RunningStatement>();
+
+	/**
+	 * Cancels the statement.
+	 *
+	 * @return true if the statement was executing
+	 */
+	public static boolean cancel(final long id) {
+		final RunningStatement running = statements.get(Long.valueOf(id));
+		if (running != null) {
+			try {
+				running.statement.cancel();
+				Config.logger.info("Cancelled statement " + id + " on " + running.resName);
+				return true;
+			} catch (final SQLException exception) {
+				Config.logger.warn("Failed to cancel statement " + id + " -- " + exception.getMessage());
+			}
+		}
+		return false;
+	}
+
+	/** Returns string representation of executing statements, oldest first. */
+	public static String dumpStatements() {
+		final long now = System.currentTimeMillis();
+		final StringBuilder dump = new StringBuilder(100 + statements.size() * 100);
+		dump.append("Running statements\n");
+		for (final Map.Entry<Long, RunningStatement> entry : statements.entrySet()) {
+			final RunningStatement running = entry.getValue();
+			dump.append('\t');
+			dump.append(entry.getKey());
+			dump.append(' ');
+			dump.append(running.resName);
+			dump.append(' ');
+			dump.append(now - running.startTime);
+			dump.append(" ms :: ");
+			dump.append(running.sql);
+			dump.append('\n');
+		}
+		return dump.toString();
+	}
+
+	/**
+	 * Converts driver exception into a {@link QueryTimeoutException} if the statement timed out or was cancelled, or
+	 * otherwise a {@link SqlResourceException}.
+	 */
+	public static SqlResourceException newException(final SQLException exception, final String sql) {
+		if (exception instanceof SQLTimeoutException) {
+			return new QueryTimeoutException(exception, sql);
+		}
+		for (final String sqlState : CANCELLED_SQL_STATES) {
+			if (sqlState.equals(exception.getSQLState())) {
+				return new QueryTimeoutException(exception, sql);
+			}
+		}
+		return new SqlResourceException(exception, sql);
+	}
+
+	/** Registers executing statement, returning id for {@link #unregister(long)}. */
+	static long register(final Statement statement, final String resName, final String sql) {
+		final long id = nextId.incrementAndGet();
+		statements.put(Long.valueOf(id), new RunningStatement(statement, resName, sql));
+		return id;
+	}
+
+	static void unregister(final long id) {
+		statements.remove(Long.valueOf(id));
+	}
+
+	private static class RunningStatement {
+		private final String resName;
+		private final String sql;
+		private final long startTime = System.currentTimeMillis();
+		private final Statement statement;
+
+		RunningStatement(final Statement statement, final String resName, final String sql) {
+			this.statement = statement;
+			this.resName = resName;
+			this.sql = sql;
+		}
+	}
+}
@@ -38,7 +38,7 @@ public class SqlBuilderImpl implements SqlBuilder {
 		sql.getMain().append(mainSql);
 		buildSelectSql(metaData, resourceIdentifiers, sql);
 		buildSelectSql(metaData, params, sql);
-		addOrderBy(metaData, sql);
+		addOrderBy(metaData, resourceIdentifiers, sql);
 		if (sql.getLimit() > -1) {
 			if (sql.getOffset() >= 0) {
 				sql.getClause().append(" LIMIT ");
@@ -77,9 +77,14 @@ public class SqlBuilderImpl implements SqlBuilder {
 
 	// Private helper methods
 
-	/** Adds order by statement . */
-	private void addOrderBy(final SqlResourceMetaData metaData, final SqlStruct sql) {
+	/**
+	 * Adds order by statement. Rows requested by a list of resource identifiers are returned in the order of the list,
+	 * followed by the primary keys.
+	 */
+	private void addOrderBy(final SqlResourceMetaData metaData, final List<NameValuePair> resourceIdentifiers,
+			final SqlStruct sql) {
 		boolean firstColumn = true;
+		firstColumn = addOrderByRequestOrder(metaData, resourceIdentifiers, sql, firstColumn);
 		firstColumn = addOrderByColumn(metaData, sql, firstColumn, metaData.getParent());
 		addOrderByColumn(metaData, sql, firstColumn, metaData.getChild());
 	}
@@ -101,6 +106,35 @@ public class SqlBuilderImpl implements SqlBuilder {
 		return firstColumn;
 	}
 
+	/** Adds order by case expression for each resource identifier list, ranking rows by position in the list. */
+	private boolean addOrderByRequestOrder(final SqlResourceMetaData metaData,
+			final List<NameValuePair> resourceIdentifiers, final SqlStruct sql, boolean firstColumn) {
+		if (resourceIdentifiers != null && metaData.getParent() != null) {
+			for (final NameValuePair resId : resourceIdentifiers) {
+				final ColumnMetaData column = metaData.getParent().getColumns().get(resId.getName());
+				if (resId.getOperator() == Operator.In && column != null) {
+					if (firstColumn) {
+						sql.getClause().append(" ORDER BY ");
+						firstColumn = false;
+					} else {
+						sql.getClause().append(", ");
+					}
+					sql.getClause().append("CASE ");
+					sql.getClause().append(column.getQualifiedColumnName());
+					int position = 0;
+					for (final String value : resId.getInValues()) {
+						sql.getClause().append(" WHEN ");
+						appendValue(sql.getClause(), value, column.isCharOrDateTimeType());
+						sql.getClause().append(" THEN ");
+						sql.getClause().append(position++);
+					}
+					sql.getClause().append(" END");
+				}
+			}
+		}
+		return firstColumn;
+	}
+
 	private Map<String, SqlStruct> buildDeleteSql(final SqlResourceMetaData metaData, final Request request,
 			final boolean doParent) throws InvalidRequestException {
 		final Map<String, SqlStruct> sqls = new HashMap<String, SqlStruct>(metaData.getNumberTables());
@@ -6,12 +6,14 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
@@ -22,43 +24,52 @@ import org.restsql.core.Factory.SqlResourceFactory;
 import org.restsql.core.Factory.SqlResourceFactoryException;
 import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
-import org.restsql.core.Trigger;
 import org.restsql.core.sqlresource.ObjectFactory;
 import org.restsql.core.sqlresource.SqlResourceDefinition;
 
 /**
  * Manages SQL Resource construction. Loads definitions from XML files in the directory <code>sqlresources.dir</code> on
- * first request. Use {@link #reloadSqlResource(String)} to refresh with the latest definition.
+ * first request or at startup by {@link SqlResourceWarmUp}. Use {@link #reloadSqlResource(String)} to refresh with the
+ * latest definition. Concurrent first requests for a resource share one load, and a load never replaces a resource
+ * stored in the meantime by a reload.
  * 
  * @author Mark Sawers
  */
 public class SqlResourceFactoryImpl implements SqlResourceFactory {
-	private final Map<String, SqlResource> sqlResources = new HashMap<String, SqlResource>();
+	private final ConcurrentMap<String, FutureTask<SqlResource>> loads = new ConcurrentHashMap<String, FutureTask<SqlResource>>();
+	private final ConcurrentMap<String, SqlResource> sqlResources = new ConcurrentHashMap<String, SqlResource>();
 	private String sqlResourcesDir;
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public SqlResource getSqlResource(final String resName) throws SqlResourceFactoryException,
 			SqlResourceException {
-		SqlResource sqlResource = sqlResources.get(resName);
-		if (sqlResource == null) {
-			final InputStream inputStream = getInputStream(resName);
-			JAXBContext context;
-			try {
-				context = JAXBContext.newInstance(ObjectFactory.class);
-				final Unmarshaller unmarshaller = context.createUnmarshaller();
-				unmarshaller.setSchema(null);
-				final SqlResourceDefinition definition = ((JAXBElement<SqlResourceDefinition>) unmarshaller
-						.unmarshal(inputStream)).getValue();
-				sqlResource = new SqlResourceImpl(resName, definition, Factory.getSqlResourceMetaData(
-						resName, definition), Factory.getSqlBuilder(), new ArrayList<Trigger>());
-				sqlResources.put(resName, sqlResource);
-			} catch (final JAXBException exception) {
-				throw new SqlResourceFactoryException("Error unmarshalling SQL Resource "
-						+ getSqlResourceFileName(resName) + " -- " + exception.getMessage());
+		final SqlResource sqlResource = sqlResources.get(resName);
+		if (sqlResource != null) {
+			return sqlResource;
+		}
+		final FutureTask<SqlResource> task = new FutureTask<SqlResource>(new Callable<SqlResource>() {
+			@Override
+			public SqlResource call() throws SqlResourceException {
+				// Recheck, since a load may have completed after the first lookup
+				final SqlResource existingResource = sqlResources.get(resName);
+				if (existingResource != null) {
+					return existingResource;
+				}
+				final SqlResource loadedResource = loadSqlResource(resName);
+				final SqlResource reloadedResource = sqlResources.putIfAbsent(resName, loadedResource);
+				return reloadedResource != null ? reloadedResource : loadedResource;
 			}
+		});
+		final FutureTask<SqlResource> existingTask = loads.putIfAbsent(resName, task);
+		if (existingTask != null) {
+			return getLoadedSqlResource(existingTask);
+		}
+		try {
+			task.run();
+		} finally {
+			loads.remove(resName, task);
 		}
-		return sqlResource;
+		return getLoadedSqlResource(task);
 	}
 
 	@Override
@@ -93,14 +104,15 @@ public class SqlResourceFactoryImpl implements SqlResourceFactory {
 	}
 
 	/**
-	 * Reloads definition using the current file. Note this operation is not thread safe and should be run in
-	 * development mode only.
+	 * Reloads definition using the current file. The new resource is built completely before it replaces the old one,
+	 * so requests in flight keep using the old version and a failed reload leaves the old version in place.
 	 */
 	@Override
 	public void reloadSqlResource(final String resName) throws SqlResourceFactoryException,
 			SqlResourceException {
-		sqlResources.remove(resName);
-		getSqlResource(resName);
+		SqlResourceMetaDataSnapshot.delete(resName);
+		CatalogCache.clear();
+		sqlResources.put(resName, loadSqlResource(resName));
 	}
 
 	// Package methods
@@ -121,6 +133,26 @@ public class SqlResourceFactoryImpl implements SqlResourceFactory {
 
 	// Private utils
 
+	private static SqlResource getLoadedSqlResource(final FutureTask<SqlResource> task) throws SqlResourceException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (final InterruptedException exception) {
+					// The shared load completes regardless, so wait for it
+					interrupted = true;
+				}
+			}
+		} catch (final ExecutionException exception) {
+			throw DatabaseExecutor.toSqlResourceException(exception);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	private InputStream getInputStream(final String resName) throws SqlResourceFactoryException {
 		final String fileName = getSqlResourceFileName(resName);
 		InputStream inputStream = null;
@@ -136,6 +168,29 @@ public class SqlResourceFactoryImpl implements SqlResourceFactory {
 		return inputStream;
 	}
 
+	/** Unmarshals the definition and builds the resource with its meta data. */
+	@SuppressWarnings("unchecked")
+	private SqlResource loadSqlResource(final String resName) throws SqlResourceFactoryException,
+			SqlResourceException {
+		final InputStream inputStream = getInputStream(resName);
+		try {
+			final JaxbPool pool = JaxbPool.getPool(ObjectFactory.class);
+			final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+			final SqlResourceDefinition definition;
+			try {
+				definition = ((JAXBElement<SqlResourceDefinition>) unmarshaller.unmarshal(inputStream))
+						.getValue();
+			} finally {
+				pool.release(unmarshaller);
+			}
+			return new SqlResourceImpl(resName, definition, Factory.getSqlResourceMetaData(resName, definition),
+					Factory.getSqlBuilder(), TriggerManager.getTriggers(resName));
+		} catch (final JAXBException exception) {
+			throw new SqlResourceFactoryException("Error unmarshalling SQL Resource "
+					+ getSqlResourceFileName(resName) + " -- " + exception.getMessage());
+		}
+	}
+
 	private String getSqlResourceFileName(final String resName) {
 		final StringBuilder fileName = new StringBuilder(128);
 		fileName.append(getSqlResourcesDir());
@@ -1,6 +1,8 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core.impl;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -9,6 +11,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import org.restsql.core.ColumnMetaData;
 import org.restsql.core.Config;
@@ -19,6 +23,7 @@ import org.restsql.core.SqlBuilder;
 import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
 import org.restsql.core.SqlResourceMetaData;
+import org.restsql.core.StreamingResponseSerializer;
 import org.restsql.core.Trigger;
 import org.restsql.core.Request.Type;
 import org.restsql.core.SqlBuilder.SqlStruct;
@@ -28,14 +33,30 @@ import org.restsql.core.sqlresource.SqlResourceDefinitionUtils;
 
 /**
  * Represents a SQL Resource, a queryable and updatable database "view". Loads metadata on creation and caches it.
+ * <p>
+ * Reads use replicas if the connection factory supports them and the definition or the system default allows it.
+ * After a write, reads of this resource use the primary for the read-your-writes window.
+ * <p>
+ * Statements are limited by the query timeout of the definition or the system default, and are registered with
+ * {@link RunningStatements} while executing so that they can be cancelled. Execution times feed the adaptive
+ * {@link ConcurrencyLimiter}, if enabled. Identical concurrent serialized reads share one execution when
+ * {@link ReadCoalescer} is enabled. Streamed reads are never coalesced, and use the streaming fetch size, if set, so
+ * that drivers need not buffer the result set. Reads and writes use the thread's
+ * {@link TransactionContext} connection, if any.
  * 
  * @author Mark Sawers
  */
 public class SqlResourceImpl implements SqlResource {
 	private final SqlResourceDefinition definition;
+	private volatile long lastWriteTime;
 	private final SqlResourceMetaData metaData;
 	private final String name;
+	private final int queryTimeout;
+	private final long readYourWritesWindow;
+	private final boolean replicaReads;
 	private final SqlBuilder sqlBuilder;
+	private final int streamingFetchSize;
+	private final Trigger[][] triggerTable;
 	private final List<Trigger> triggers;
 
 	public SqlResourceImpl(final String name, final SqlResourceDefinition definition,
@@ -47,6 +68,20 @@ public class SqlResourceImpl implements SqlResource {
 		this.metaData = metaData;
 		this.sqlBuilder = sqlBuilder;
 		this.triggers = triggers;
+		triggerTable = TriggerManager.buildDispatchTable(triggers);
+		final Boolean definitionReplicaReads = definition.getMetadata().getDatabase().isReplicaReads();
+		replicaReads = definitionReplicaReads != null ? definitionReplicaReads.booleanValue() : Boolean
+				.valueOf(Config.properties.getProperty(Config.KEY_DATABASE_REPLICA_READS,
+						Config.DEFAULT_DATABASE_REPLICA_READS));
+		readYourWritesWindow = Long.parseLong(Config.properties.getProperty(
+				Config.KEY_DATABASE_REPLICA_READ_YOUR_WRITES_WINDOW,
+				Config.DEFAULT_DATABASE_REPLICA_READ_YOUR_WRITES_WINDOW));
+		final Integer definitionQueryTimeout = definition.getQuery().getTimeout();
+		queryTimeout = definitionQueryTimeout != null ? definitionQueryTimeout.intValue() : Integer
+				.parseInt(Config.properties.getProperty(Config.KEY_DATABASE_QUERY_TIMEOUT,
+						Config.DEFAULT_DATABASE_QUERY_TIMEOUT));
+		streamingFetchSize = Integer.parseInt(Config.properties.getProperty(
+				Config.KEY_DATABASE_STREAMING_FETCH_SIZE, Config.DEFAULT_DATABASE_STREAMING_FETCH_SIZE));
 	}
 
 	@Override
@@ -79,7 +114,7 @@ public class SqlResourceImpl implements SqlResource {
 	@SuppressWarnings("unchecked")
 	@Override
 	public List<Map<String, Object>> read(final Request request) throws SqlResourceException {
-		return (List<Map<String, Object>>) execRead(request, null);
+		return (List<Map<String, Object>>) execRead(request, null, null);
 	}
 
 	/**
@@ -92,7 +127,25 @@ public class SqlResourceImpl implements SqlResource {
 	 */
 	@Override
 	public String read(final Request request, final String mediaType) throws SqlResourceException {
-		return (String) execRead(request, mediaType);
+		return (String) execRead(request, mediaType, null);
+	}
+
+	/**
+	 * Executes query writing results to the writer as rows are read.
+	 * 
+	 * @param request Request object
+	 * @param mediaType response format, use internet media type e.g. application/x-ndjson
+	 * @param writer output
+	 * @throws SqlResourceException if the media type cannot be streamed, a database access error occurs or the writer
+	 *             fails
+	 */
+	@Override
+	public void read(final Request request, final String mediaType, final Writer writer)
+			throws SqlResourceException {
+		if (!(Factory.getResponseSerializer(mediaType) instanceof StreamingResponseSerializer)) {
+			throw new SqlResourceException("Streaming not supported for media type " + mediaType);
+		}
+		execRead(request, mediaType, writer);
 	}
 
 	/**
@@ -104,14 +157,17 @@ public class SqlResourceImpl implements SqlResource {
 	 */
 	@Override
 	public int write(final Request request) throws SqlResourceException {
-		TriggerManager.executeTriggers(getName(), request, true);
+		TriggerManager.executeTriggers(triggerTable, request, true);
 
 		int rowsAffected = 0;
 		boolean doParent = true;
-		Connection connection = null;
+		Connection connection = TransactionContext.getConnection();
+		final boolean ownConnection = connection == null;
 
 		try {
-			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
+			if (ownConnection) {
+				connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
+			}
 			if (metaData.isHierarchical()) {
 				final Request childRequest = Factory.getChildRequest(request);
 				if (request.getChildrenParameters() != null) {
@@ -139,11 +195,12 @@ public class SqlResourceImpl implements SqlResource {
 				rowsAffected += write(connection, request, true);
 			}
 
-			TriggerManager.executeTriggers(getName(), request, false);
+			executeAfterTriggers(request);
 		} catch (final SQLException exception) {
 			throw new SqlResourceException(exception);
 		} finally {
-			if (connection != null) {
+			lastWriteTime = System.currentTimeMillis();
+			if (ownConnection && connection != null) {
 				try {
 					connection.close();
 				} catch (final SQLException ignored) {
@@ -238,21 +295,46 @@ public class SqlResourceImpl implements SqlResource {
 		return results;
 	}
 
-	private Object execRead(final Request request, final String contentType) throws SqlResourceException {
-		TriggerManager.executeTriggers(getName(), request, true);
+	/** Creates statement limited by the query timeout, if any. */
+	private Statement createStatement(final Connection connection) throws SQLException {
+		final Statement statement = connection.createStatement();
+		if (queryTimeout > 0) {
+			statement.setQueryTimeout(queryTimeout);
+		}
+		return statement;
+	}
 
+	/** Executes the query and builds, serializes or streams the results. */
+	private Object execQuery(final Request request, final String contentType, final String sql,
+			final Writer writer) throws SqlResourceException {
 		final Object results;
-		Connection connection = null;
-		String sql = null;
+		Connection connection = TransactionContext.getConnection();
+		final boolean ownConnection = connection == null;
+		long statementId = 0;
 		try {
-			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
-			final Statement statement = connection.createStatement();
-			sql = sqlBuilder.buildSelectSql(metaData, definition.getQuery().getValue(), request
-					.getResourceIdentifiers(), request.getParameters());
-			Config.logger.debug(sql);
-			request.getLogger().addSql(sql);
+			if (ownConnection) {
+				final String defaultDatabase = SqlResourceDefinitionUtils.getDefaultDatabase(definition);
+				if (replicaReads && System.currentTimeMillis() - lastWriteTime >= readYourWritesWindow) {
+					connection = Factory.getReadConnection(defaultDatabase);
+				} else {
+					connection = Factory.getConnection(defaultDatabase);
+				}
+			} // else use the transaction, so that the read sees its writes
+			final Statement statement = createStatement(connection);
+			if (writer != null && streamingFetchSize != 0) {
+				statement.setFetchSize(streamingFetchSize);
+			}
+			statementId = RunningStatements.register(statement, name, sql);
+			final long startTime = System.nanoTime();
 			final ResultSet resultSet = statement.executeQuery(sql);
-			if (metaData.isHierarchical()) {
+			final long executionTime = System.nanoTime() - startTime;
+			SqlStatistics.record(sql, TimeUnit.NANOSECONDS.toMillis(executionTime));
+			ConcurrencyLimiter.recordLatency(this, executionTime);
+			if (writer != null) {
+				((StreamingResponseSerializer) Factory.getResponseSerializer(contentType)).serializeRead(this,
+						resultSet, writer);
+				results = null;
+			} else if (metaData.isHierarchical()) {
 				if (contentType != null) {
 					results = Factory.getResponseSerializer(contentType).serializeReadHierarchical(this,
 							buildReadResultsHierachicalCollection(resultSet));
@@ -269,20 +351,59 @@ public class SqlResourceImpl implements SqlResource {
 			resultSet.close();
 			statement.close();
 		} catch (final SQLException exception) {
+			throw RunningStatements.newException(exception, sql);
+		} catch (final IOException exception) {
 			throw new SqlResourceException(exception, sql);
 		} finally {
-			if (connection != null) {
+			if (statementId != 0) {
+				RunningStatements.unregister(statementId);
+			}
+			if (ownConnection && connection != null) {
 				try {
 					connection.close();
 				} catch (final SQLException ignored) {
 				}
 			}
 		}
+		return results;
+	}
+
+	/**
+	 * Executes the read, sharing the execution of identical concurrent serialized reads if coalescing is enabled. Reads
+	 * with a writer are streamed to it.
+	 */
+	private Object execRead(final Request request, final String contentType, final Writer writer)
+			throws SqlResourceException {
+		TriggerManager.executeTriggers(triggerTable, request, true);
 
-		TriggerManager.executeTriggers(getName(), request, false);
+		final String sql = sqlBuilder.buildSelectSql(metaData, definition.getQuery().getValue(), request
+				.getResourceIdentifiers(), request.getParameters());
+		Config.logger.debug(sql);
+		request.getLogger().addSql(sql);
+		final Object results;
+		if (contentType != null && writer == null && ReadCoalescer.isEnabled()
+				&& TransactionContext.getConnection() == null) {
+			results = ReadCoalescer.read(this, sql, contentType, new Callable<String>() {
+				@Override
+				public String call() throws SqlResourceException {
+					return (String) execQuery(request, contentType, sql, null);
+				}
+			});
+		} else {
+			results = execQuery(request, contentType, sql, writer);
+		}
+
+		executeAfterTriggers(request);
 		return results;
 	}
 
+	/** Executes after-execution triggers, or defers them until commit of the thread's transaction, if any. */
+	private void executeAfterTriggers(final Request request) throws SqlResourceException {
+		if (!TransactionContext.deferAfterTriggers(triggerTable, request)) {
+			TriggerManager.executeTriggers(triggerTable, request, false);
+		}
+	}
+
 	private int write(final Connection connection, final Request request, final boolean doParent)
 			throws SqlResourceException {
 		int rowsAffected = 0;
@@ -319,14 +440,24 @@ public class SqlResourceImpl implements SqlResource {
 				// do not execute update on extension, which would affect all rows
 			} else {
 				final String sql = sqlStruct.getMain().toString();
+				long statementId = 0;
 				try {
-					final Statement statement = connection.createStatement();
+					final Statement statement = createStatement(connection);
 					Config.logger.debug(sql);
 					request.getLogger().addSql(sql);
+					statementId = RunningStatements.register(statement, name, sql);
+					final long startTime = System.nanoTime();
 					rowsAffected = statement.executeUpdate(sql);
+					final long executionTime = System.nanoTime() - startTime;
+					SqlStatistics.record(sql, TimeUnit.NANOSECONDS.toMillis(executionTime));
+					ConcurrencyLimiter.recordLatency(this, executionTime);
 					statement.close();
 				} catch (final SQLException exception) {
-					throw new SqlResourceException(exception, sql);
+					throw RunningStatements.newException(exception, sql);
+				} finally {
+					if (statementId != 0) {
+						RunningStatements.unregister(statementId);
+					}
 				}
 			}
 		}
@@ -19,6 +19,23 @@ public class SqlResourceMetaDataMySql extends AbstractSqlResourceMetaData {
 			+ " and tc.constraint_type = 'PRIMARY KEY'"
 			+ " and tc.constraint_schema = kcu.constraint_schema and tc.table_name = kcu.table_name"
 			+ " and tc.constraint_name = kcu.constraint_name";
+	private static final String SQL_BULK_COLUMNS_QUERY = "select table_name, column_name, data_type from information_schema.columns where table_schema = ? and table_name in ";
+	private static final String SQL_BULK_PK_QUERY = "select kcu.table_name, kcu.column_name from information_schema.table_constraints tc, information_schema.key_column_usage kcu"
+			+ " where tc.constraint_schema = ? and tc.constraint_type = 'PRIMARY KEY'"
+			+ " and tc.constraint_schema = kcu.constraint_schema and tc.table_name = kcu.table_name"
+			+ " and tc.constraint_name = kcu.constraint_name and tc.table_name in ";
+
+	/** Retrieves sql for querying columns of several tables. Hook method for bulk discovery. */
+	@Override
+	protected String getSqlBulkColumnsQuery(final int tableCount) {
+		return SQL_BULK_COLUMNS_QUERY + "(" + getParameterList(tableCount) + ")";
+	}
+
+	/** Retrieves sql for querying primary keys of several tables. Hook method for bulk discovery. */
+	@Override
+	protected String getSqlBulkPkQuery(final int tableCount) {
+		return SQL_BULK_PK_QUERY + "(" + getParameterList(tableCount) + ") order by kcu.ordinal_position";
+	}
 
 	/**
 	 * Retrieves sql for querying columns. Hook method for buildInvisibleForeignKeys() and buildJoinTableMetadata()
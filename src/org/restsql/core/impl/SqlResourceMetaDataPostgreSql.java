@@ -23,6 +23,11 @@ public class SqlResourceMetaDataPostgreSql extends AbstractSqlResourceMetaData {
 			+ " and tc.constraint_type = 'PRIMARY KEY'"
 			+ " and tc.constraint_schema = kcu.constraint_schema and tc.table_name = kcu.table_name"
 			+ " and tc.constraint_name = kcu.constraint_name";
+	private static final String SQL_BULK_COLUMNS_QUERY = "select table_name, column_name, data_type, table_schema from information_schema.columns where table_catalog = ? and table_name in ";
+	private static final String SQL_BULK_PK_QUERY = "select kcu.table_name, kcu.column_name from information_schema.table_constraints tc, information_schema.key_column_usage kcu"
+			+ " where tc.constraint_catalog = ? and tc.constraint_type = 'PRIMARY KEY'"
+			+ " and tc.constraint_schema = kcu.constraint_schema and tc.table_name = kcu.table_name"
+			+ " and tc.constraint_name = kcu.constraint_name and tc.table_name in ";
 	private static final String SQL_TABLE_SCHEMA_QUERY = "select table_schema from information_schema.tables where table_catalog = ? and table_name = ?";
 
 	/**
@@ -55,6 +60,18 @@ public class SqlResourceMetaDataPostgreSql extends AbstractSqlResourceMetaData {
 		return ((PGResultSetMetaData) resultSetMetaData).getBaseTableName(colNumber);
 	}
 
+	/** Retrieves sql for querying columns and schema of several tables. Hook method for bulk discovery. */
+	@Override
+	protected String getSqlBulkColumnsQuery(final int tableCount) {
+		return SQL_BULK_COLUMNS_QUERY + "(" + getParameterList(tableCount) + ")";
+	}
+
+	/** Retrieves sql for querying primary keys of several tables. Hook method for bulk discovery. */
+	@Override
+	protected String getSqlBulkPkQuery(final int tableCount) {
+		return SQL_BULK_PK_QUERY + "(" + getParameterList(tableCount) + ") order by kcu.ordinal_position";
+	}
+
 	/**
 	 * Retrieves sql for querying columns. Hook method for buildInvisibleForeignKeys() and buildJoinTableMetadata()
 	 * allows database-specific overrides.
@@ -81,10 +98,17 @@ public class SqlResourceMetaDataPostgreSql extends AbstractSqlResourceMetaData {
 				+ pgMetaData.getBaseSchemaName(colNumber) + "." + pgMetaData.getBaseTableName(colNumber);
 	}
 
-	/** Retrieves database-specific table name used in SQL statements. Used to build join table meta data. */
+	/**
+	 * Retrieves database-specific table name used in SQL statements. Used to build join table meta data. Uses the schema
+	 * name from the catalog cache if bulk discovery has loaded the table.
+	 */
 	@Override
 	protected String getQualifiedTableName(Connection connection, String databaseName, String tableName)
 			throws SQLException {
+		final String cachedSchemaName = getCachedSchemaName(databaseName, tableName);
+		if (cachedSchemaName != null) {
+			return databaseName + "." + cachedSchemaName + "." + tableName;
+		}
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
@@ -0,0 +1,166 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import org.restsql.core.Config;
+import org.restsql.core.sqlresource.SqlResourceDefinition;
+import org.restsql.core.sqlresource.Table;
+
+/**
+ * Persists SQL Resource meta data to XML files in the directory <code>metadata.snapshot.dir</code>, so that a restarted
+ * service can build its resources without querying the database catalog. Snapshots are disabled if the directory is
+ * not configured.
+ * <p>
+ * Each snapshot records a checksum of the inputs to the meta data: the definition's query, default database and
+ * tables, the meta data implementation class and the database URL. A snapshot whose checksum does not match the
+ * current definition is ignored and overwritten. Snapshots also record a checksum of the catalog columns, data types
+ * and primary keys of the resource's tables. The meta data validates a snapshot against the catalog when loading it,
+ * so a snapshot is rebuilt after its tables are altered. This costs the catalog queries but not the resource's query.
+ *
+ * @author Mark Sawers
+ */
+public class SqlResourceMetaDataSnapshot {
+	private static final QName ELEMENT_NAME = new QName("http://restsql.org/schema", "sqlResourceMetaData");
+	private static final String FORMAT_VERSION = "1";
+	private static final String snapshotDir = Config.properties.getProperty(Config.KEY_METADATA_SNAPSHOT_DIR,
+			null);
+
+	/** Removes the resource's snapshot, if any. */
+	public static void delete(final String resName) {
+		if (isEnabled()) {
+			final File file = getFile(resName);
+			if (file.exists() && !file.delete()) {
+				Config.logger.warn("Failed to delete meta data snapshot " + file.getAbsolutePath());
+			}
+		}
+	}
+
+	/** Returns checksum of the definition and configuration inputs to the meta data. */
+	public static String getChecksum(final SqlResourceDefinition definition, final Class<?> metaDataClass) {
+		final StringBuilder inputs = new StringBuilder(500);
+		inputs.append(FORMAT_VERSION);
+		inputs.append('\n');
+		inputs.append(metaDataClass.getName());
+		inputs.append('\n');
+		inputs.append(Config.properties.getProperty(Config.KEY_DATABASE_URL, Config.DEFAULT_DATABASE_URL));
+		inputs.append('\n');
+		inputs.append(definition.getMetadata().getDatabase().getDefault());
+		inputs.append('\n');
+		for (final Table table : definition.getMetadata().getTable()) {
+			inputs.append(table.getName());
+			inputs.append(' ');
+			inputs.append(table.getAlias());
+			inputs.append(' ');
+			inputs.append(table.getRole());
+			inputs.append('\n');
+		}
+		inputs.append(definition.getQuery().getValue());
+		return digest(inputs);
+	}
+
+	/** Returns true if the snapshot directory is configured. */
+	public static boolean isEnabled() {
+		return snapshotDir != null;
+	}
+
+	/** Returns hex MD5 digest of the inputs. */
+	static String digest(final CharSequence inputs) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("MD5").digest(inputs.toString().getBytes("UTF-8"));
+			final StringBuilder checksum = new StringBuilder(digest.length * 2);
+			for (final byte b : digest) {
+				checksum.append(Character.forDigit((b >> 4) & 0xF, 16));
+				checksum.append(Character.forDigit(b & 0xF, 16));
+			}
+			return checksum.toString();
+		} catch (final NoSuchAlgorithmException exception) {
+			throw new IllegalStateException(exception); // every JRE must support MD5
+		} catch (final UnsupportedEncodingException exception) {
+			throw new IllegalStateException(exception); // every JRE must support UTF-8
+		}
+	}
+
+	/**
+	 * Loads the resource's snapshot.
+	 *
+	 * @return snapshot, or null if it does not exist, cannot be read or does not match the checksum
+	 */
+	static <T extends AbstractSqlResourceMetaData> T load(final String resName, final String checksum,
+			final Class<T> metaDataClass) {
+		final File file = getFile(resName);
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			final JaxbPool pool = JaxbPool.getPool(metaDataClass);
+			final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+			final T snapshot;
+			try {
+				snapshot = unmarshaller.unmarshal(new StreamSource(file), metaDataClass).getValue();
+			} finally {
+				pool.release(unmarshaller);
+			}
+			if (!checksum.equals(snapshot.getDefinitionChecksum())) {
+				if (Config.logger.isInfoEnabled()) {
+					Config.logger.info("Meta data snapshot for " + resName + " is stale");
+				}
+				return null;
+			}
+			if (Config.logger.isDebugEnabled()) {
+				Config.logger.debug("Loaded meta data for " + resName + " from snapshot " + file.getAbsolutePath());
+			}
+			return snapshot;
+		} catch (final Exception exception) {
+			Config.logger.warn("Failed to load meta data snapshot " + file.getAbsolutePath() + " -- "
+					+ exception.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the meta data's snapshot. The file is written under a temporary name and then renamed, so readers never see
+	 * a partial snapshot. Errors are logged and otherwise ignored.
+	 */
+	static void save(final AbstractSqlResourceMetaData metaData) {
+		final File file = getFile(metaData.getResName());
+		final File tempFile = new File(file.getPath() + ".tmp");
+		try {
+			file.getParentFile().mkdirs();
+			final JaxbPool pool = JaxbPool.getPool(metaData.getClass());
+			final Marshaller marshaller = pool.acquireMarshaller();
+			try {
+				marshaller.marshal(new JAXBElement<AbstractSqlResourceMetaData>(ELEMENT_NAME,
+						AbstractSqlResourceMetaData.class, metaData), tempFile);
+			} finally {
+				pool.release(marshaller);
+			}
+			if (!tempFile.renameTo(file)) {
+				file.delete();
+				if (!tempFile.renameTo(file)) {
+					throw new JAXBException("Could not rename " + tempFile.getAbsolutePath());
+				}
+			}
+		} catch (final JAXBException exception) {
+			tempFile.delete();
+			Config.logger.warn("Failed to write meta data snapshot " + file.getAbsolutePath() + " -- "
+					+ exception.toString());
+		}
+	}
+
+	// Private utils
+
+	private static File getFile(final String resName) {
+		return new File(snapshotDir, resName + ".xml");
+	}
+}
@@ -0,0 +1,150 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restsql.core.Config;
+import org.restsql.core.Factory;
+
+/**
+ * Loads all SQL Resource definitions and meta data at startup, so that the first request for each resource does not
+ * pay for unmarshalling and meta data queries. Resources are loaded in parallel on a bounded pool by a background
+ * thread, and the service reports ready once all have been attempted. Failed resources are logged and are loaded again
+ * lazily on the next request.
+ *
+ * @author Mark Sawers
+ */
+public class SqlResourceWarmUp {
+	private static volatile long elapsedTime;
+	private static final Map<String, Result> results = new ConcurrentSkipListMap<String, Result>();
+	private static volatile State state = State.NotStarted;
+
+	/** Returns string representation of warm-up state and per-resource load times. */
+	public static String dumpReport() {
+		final StringBuilder dump = new StringBuilder(100 + results.size() * 50);
+		dump.append("Warm-up ");
+		dump.append(state);
+		if (state == State.Complete) {
+			dump.append(" in ");
+			dump.append(elapsedTime);
+			dump.append(" ms");
+		}
+		dump.append('\n');
+		for (final Map.Entry<String, Result> entry : results.entrySet()) {
+			dump.append('\t');
+			dump.append(entry.getKey());
+			dump.append(" = ");
+			dump.append(entry.getValue().time);
+			dump.append(" ms");
+			if (entry.getValue().error != null) {
+				dump.append(" failed: ");
+				dump.append(entry.getValue().error);
+			}
+			dump.append('\n');
+		}
+		return dump.toString();
+	}
+
+	/** Returns true if warm-up is disabled or has attempted every resource. */
+	public static boolean isReady() {
+		return state == State.Complete || state == State.Disabled;
+	}
+
+	/** Starts warm-up in the background if enabled. Called by the service on startup. */
+	public static synchronized void start() {
+		if (state != State.NotStarted) {
+			return;
+		}
+		if (!Boolean.valueOf(Config.properties.getProperty(Config.KEY_WARMUP_ENABLED,
+				Config.DEFAULT_WARMUP_ENABLED))) {
+			state = State.Disabled;
+			return;
+		}
+		state = State.Running;
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				warmUp();
+			}
+		}, "restsql-warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// Private utils
+
+	private static void warmUp() {
+		final long start = System.currentTimeMillis();
+		try {
+			final List<String> resNames = Factory.getSqlResourceNames();
+			final int threads = Integer.parseInt(Config.properties.getProperty(Config.KEY_WARMUP_THREADS,
+					Config.DEFAULT_WARMUP_THREADS));
+			final ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new WarmUpThreadFactory());
+			for (final String resName : resNames) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						load(resName);
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		} catch (final Exception exception) {
+			Config.logger.error("Warm-up failed to list SQL Resources", exception);
+		}
+		elapsedTime = System.currentTimeMillis() - start;
+		state = State.Complete;
+		Config.logger.info("Warm-up loaded " + results.size() + " SQL Resources in " + elapsedTime + " ms");
+	}
+
+	private static void load(final String resName) {
+		final long start = System.currentTimeMillis();
+		String error = null;
+		try {
+			Factory.getSqlResource(resName);
+		} catch (final Exception exception) {
+			error = exception.getMessage();
+			Config.logger.warn("Warm-up failed to load " + resName + " -- " + error);
+		}
+		results.put(resName, new Result(System.currentTimeMillis() - start, error));
+	}
+
+	/** Load time and error of one resource. */
+	private static class Result {
+		private final String error;
+		private final long time;
+
+		Result(final long time, final String error) {
+			this.time = time;
+			this.error = error;
+		}
+	}
+
+	private static enum State {
+		Complete, Disabled, NotStarted, Running;
+	}
+
+	/** Creates named daemon threads. */
+	private static class WarmUpThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "restsql-warmup-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
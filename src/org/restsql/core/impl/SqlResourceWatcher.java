@@ -0,0 +1,207 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.restsql.core.Config;
+import org.restsql.core.Factory;
+
+/**
+ * Watches the SQL Resources directory tree and reloads resources whose definition files change. Changes to a file are
+ * debounced, so that an editor or deployment writing it in several steps causes a single reload once the file has
+ * been quiet for <code>sqlresources.watch.debounce</code> milliseconds. Reloads run on the watcher thread and replace
+ * the resource atomically through {@link Factory#reloadSqlResource(String)}. If the file system drops events, the
+ * tree is rescanned and every definition is reloaded. Deleted definitions stay loaded until restart.
+ *
+ * @author Mark Sawers
+ */
+public class SqlResourceWatcher implements Runnable {
+	private static final String EXTENSION = ".xml";
+	private static SqlResourceWatcher watcher;
+
+	/** Starts the watcher if enabled and the resources directory is on the file system. Called by the service. */
+	public static synchronized void start() {
+		if (watcher != null
+				|| !Boolean.valueOf(Config.properties.getProperty(Config.KEY_SQLRESOURCES_WATCH,
+						Config.DEFAULT_SQLRESOURCES_WATCH))) {
+			return;
+		}
+		final File dir = new File(Factory.getSqlResourcesDir());
+		if (!dir.isDirectory()) {
+			Config.logger.warn("Cannot watch SQL Resources dir " + dir + " - not a file system directory");
+			return;
+		}
+		try {
+			watcher = new SqlResourceWatcher(dir.toPath(), Long.parseLong(Config.properties.getProperty(
+					Config.KEY_SQLRESOURCES_WATCH_DEBOUNCE, Config.DEFAULT_SQLRESOURCES_WATCH_DEBOUNCE)));
+		} catch (final IOException exception) {
+			Config.logger.error("Failed to watch SQL Resources dir " + dir, exception);
+			return;
+		}
+		final Thread thread = new Thread(watcher, "restsql-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		Config.logger.info("Watching SQL Resources dir " + dir);
+	}
+
+	/** Stops the watcher. Called by the service on unload. */
+	public static synchronized void stop() {
+		if (watcher != null) {
+			try {
+				watcher.watchService.close();
+			} catch (final IOException exception) {
+				Config.logger.warn("Failed to close SQL Resources watcher -- " + exception);
+			}
+			watcher = null;
+		}
+	}
+
+	private final long debounce;
+	private final Map<WatchKey, Path> dirs = new HashMap<WatchKey, Path>();
+	/** Map<resName, time of last change> */
+	private final Map<String, Long> pending = new HashMap<String, Long>();
+	private final Path rootDir;
+	private final WatchService watchService;
+
+	private SqlResourceWatcher(final Path rootDir, final long debounce) throws IOException {
+		this.rootDir = rootDir;
+		this.debounce = debounce;
+		watchService = FileSystems.getDefault().newWatchService();
+		register(rootDir.toFile());
+	}
+
+	/**
+	 * Waits for changes and reloads changed resources once they have been quiet for the debounce interval. Unexpected
+	 * errors are logged and the watcher carries on.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				final WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(debounce,
+						TimeUnit.MILLISECONDS);
+				try {
+					if (key != null) {
+						handleEvents(key);
+					}
+					reloadQuietResources();
+				} catch (final ClosedWatchServiceException exception) {
+					throw exception;
+				} catch (final RuntimeException exception) {
+					Config.logger.error("SQL Resources watcher failed to handle changes", exception);
+				}
+			}
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		} catch (final ClosedWatchServiceException exception) {
+			// stopped
+		}
+	}
+
+	// Private utils
+
+	private String getResName(final Path file) {
+		final String relativeName = rootDir.relativize(file).toString();
+		return relativeName.substring(0, relativeName.length() - EXTENSION.length()).replace(File.separatorChar,
+				'.');
+	}
+
+	private void handleEvents(final WatchKey key) {
+		final Path dir = dirs.get(key);
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				rescan();
+				continue;
+			} else if (dir == null) {
+				continue;
+			}
+			final Path file = dir.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && file.toFile().isDirectory()) {
+				try {
+					register(file.toFile());
+					queueDefinitions(file.toFile());
+				} catch (final IOException exception) {
+					Config.logger.warn("Failed to watch " + file + " -- " + exception);
+				}
+			} else if (file.getFileName().toString().endsWith(EXTENSION)
+					&& event.kind() != StandardWatchEventKinds.ENTRY_DELETE) {
+				pending.put(getResName(file), Long.valueOf(System.currentTimeMillis()));
+			}
+		}
+		if (!key.reset()) {
+			dirs.remove(key);
+		}
+	}
+
+	/** Returns files in the directory, or none if it has been removed or cannot be read. */
+	private static File[] listFiles(final File dir) {
+		final File[] files = dir.listFiles();
+		return files == null ? new File[0] : files;
+	}
+
+	/** Queues definitions in a new directory, which may have been populated before it was registered. */
+	private void queueDefinitions(final File dir) {
+		for (final File file : listFiles(dir)) {
+			if (file.isDirectory()) {
+				queueDefinitions(file);
+			} else if (file.getName().endsWith(EXTENSION)) {
+				pending.put(getResName(file.toPath()), Long.valueOf(System.currentTimeMillis()));
+			}
+		}
+	}
+
+	private void register(final File dir) throws IOException {
+		final Path path = dir.toPath();
+		dirs.put(path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), path);
+		for (final File subDir : listFiles(dir)) {
+			if (subDir.isDirectory()) {
+				register(subDir);
+			}
+		}
+	}
+
+	private void reloadQuietResources() {
+		final long now = System.currentTimeMillis();
+		for (final Iterator<Map.Entry<String, Long>> iterator = pending.entrySet().iterator(); iterator.hasNext();) {
+			final Map.Entry<String, Long> entry = iterator.next();
+			if (now - entry.getValue().longValue() >= debounce) {
+				iterator.remove();
+				final String resName = entry.getKey();
+				try {
+					Factory.reloadSqlResource(resName);
+					Config.logger.info("Reloaded changed SQL Resource " + resName);
+				} catch (final Exception exception) {
+					Config.logger.error("Failed to reload changed SQL Resource " + resName
+							+ " - keeping previous version -- " + exception.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Registers directories and queues all definitions after lost events. Registering a directory again returns its
+	 * existing key.
+	 */
+	private void rescan() {
+		Config.logger.warn("SQL Resources watcher lost events - rescanning " + rootDir);
+		try {
+			register(rootDir.toFile());
+		} catch (final IOException exception) {
+			Config.logger.warn("Failed to watch " + rootDir + " -- " + exception);
+		}
+		queueDefinitions(rootDir.toFile());
+	}
+}
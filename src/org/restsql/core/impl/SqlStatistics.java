@@ -0,0 +1,218 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.restsql.core.Config;
+
+/**
+ * Aggregates SQL execution times by statement fingerprint and logs slow statements. A fingerprint is the statement
+ * with its string and numeric literals replaced by <code>?</code> and IN lists collapsed, so that all requests for a
+ * resource that differ only in values share one entry. The number of fingerprints is bounded; when the table is full
+ * the entry with the least total time is evicted.
+ *
+ * @author Mark Sawers
+ */
+public class SqlStatistics {
+	private static final Pattern IN_LIST_PATTERN = Pattern.compile("\\(\\?(\\s*,\\s*\\?)+\\)");
+	private static final int maxFingerprints = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_SQL_STATS_MAX_FINGERPRINTS, Config.DEFAULT_SQL_STATS_MAX_FINGERPRINTS));
+	private static final long slowThreshold = Long.parseLong(Config.properties.getProperty(
+			Config.KEY_SQL_STATS_SLOW_THRESHOLD, Config.DEFAULT_SQL_STATS_SLOW_THRESHOLD));
+	private static final Log slowSqlLogger = LogFactory.getLog(Config.NAME_LOGGER_SLOW_SQL);
+	private static final ConcurrentHashMap<String, SqlStatistic> statistics = new ConcurrentHashMap<String, SqlStatistic>();
+	private static final AtomicLong evictions = new AtomicLong();
+	private static final long startTime = System.currentTimeMillis();
+
+	/** Returns string representation of the top fingerprints by total execution time. */
+	public static String dumpStatistics(final int top) {
+		final List<SqlStatistic> topStatistics = getTopStatistics(top);
+		final StringBuilder dump = new StringBuilder(200 + topStatistics.size() * 200);
+		dump.append("SQL statistics since ");
+		dump.append(new Date(startTime));
+		dump.append(": top ");
+		dump.append(topStatistics.size());
+		dump.append(" of ");
+		dump.append(statistics.size());
+		dump.append(" fingerprints by total time, ");
+		dump.append(evictions.get());
+		dump.append(" evicted, slow threshold ");
+		dump.append(slowThreshold);
+		dump.append("ms\n\n");
+		dump.append(String.format("%10s %12s %10s %10s  %s\n", "count", "total(ms)", "avg(ms)", "max(ms)",
+				"fingerprint"));
+		for (final SqlStatistic statistic : topStatistics) {
+			dump.append(String.format("%10d %12d %10d %10d  %s\n", statistic.getCount(), statistic.getTotalTime(),
+					statistic.getAverageTime(), statistic.getMaxTime(), statistic.getFingerprint()));
+		}
+		return dump.toString();
+	}
+
+	/**
+	 * Returns statement with literals replaced by <code>?</code>, whitespace collapsed and IN lists reduced to
+	 * <code>(?+)</code>.
+	 */
+	public static String fingerprint(final String sql) {
+		final int length = sql.length();
+		final StringBuilder fingerprint = new StringBuilder(length);
+		boolean lastWasSpace = false;
+		for (int i = 0; i < length; i++) {
+			final char c = sql.charAt(i);
+			if (c == '\'') {
+				// Skip string literal, honoring doubled quotes and backslash escapes
+				i++;
+				while (i < length) {
+					final char d = sql.charAt(i);
+					if (d == '\\') {
+						i++;
+					} else if (d == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i++;
+						} else {
+							break;
+						}
+					}
+					i++;
+				}
+				fingerprint.append('?');
+				lastWasSpace = false;
+			} else if (Character.isDigit(c) && !isIdentifierPart(fingerprint)) {
+				// Skip numeric literal
+				while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+					i++;
+				}
+				fingerprint.append('?');
+				lastWasSpace = false;
+			} else if (Character.isWhitespace(c)) {
+				if (!lastWasSpace) {
+					fingerprint.append(' ');
+					lastWasSpace = true;
+				}
+			} else {
+				fingerprint.append(c);
+				lastWasSpace = false;
+			}
+		}
+		return IN_LIST_PATTERN.matcher(fingerprint.toString().trim()).replaceAll("(?+)");
+	}
+
+	/** Returns up to the requested number of fingerprints, ordered by descending total execution time. */
+	public static List<SqlStatistic> getTopStatistics(final int top) {
+		final List<SqlStatistic> list = new ArrayList<SqlStatistic>(statistics.values());
+		Collections.sort(list, new Comparator<SqlStatistic>() {
+			@Override
+			public int compare(final SqlStatistic statistic1, final SqlStatistic statistic2) {
+				final long total1 = statistic1.getTotalTime(), total2 = statistic2.getTotalTime();
+				return total1 < total2 ? 1 : total1 == total2 ? 0 : -1;
+			}
+		});
+		return list.size() > top ? list.subList(0, Math.max(0, top)) : list;
+	}
+
+	/** Records a statement execution, logging it if it meets the slow threshold. */
+	public static void record(final String sql, final long executionTime) {
+		if (slowThreshold >= 0 && executionTime >= slowThreshold && slowSqlLogger.isInfoEnabled()) {
+			slowSqlLogger.info(executionTime + "ms " + sql);
+		}
+		if (maxFingerprints <= 0) {
+			return;
+		}
+
+		final String fingerprint = fingerprint(sql);
+		SqlStatistic statistic = statistics.get(fingerprint);
+		if (statistic == null) {
+			synchronized (statistics) {
+				statistic = statistics.get(fingerprint);
+				if (statistic == null) {
+					if (statistics.size() >= maxFingerprints) {
+						evictLeastTotalTime();
+					}
+					statistic = new SqlStatistic(fingerprint);
+					statistics.put(fingerprint, statistic);
+				}
+			}
+		}
+		statistic.add(executionTime);
+	}
+
+	/** Clears all statistics. */
+	public static void reset() {
+		statistics.clear();
+		evictions.set(0);
+	}
+
+	// Private utils
+
+	private static void evictLeastTotalTime() {
+		SqlStatistic least = null;
+		for (final SqlStatistic statistic : statistics.values()) {
+			if (least == null || statistic.getTotalTime() < least.getTotalTime()) {
+				least = statistic;
+			}
+		}
+		if (least != null) {
+			statistics.remove(least.getFingerprint());
+			evictions.incrementAndGet();
+		}
+	}
+
+	private static boolean isIdentifierPart(final StringBuilder fingerprint) {
+		if (fingerprint.length() == 0) {
+			return false;
+		}
+		final char last = fingerprint.charAt(fingerprint.length() - 1);
+		return Character.isLetterOrDigit(last) || last == '_' || last == '.' || last == '$' || last == '`'
+				|| last == '"';
+	}
+
+	/** Holds aggregate execution times for one fingerprint. */
+	public static class SqlStatistic {
+		private final AtomicLong count = new AtomicLong();
+		private final String fingerprint;
+		private final AtomicLong maxTime = new AtomicLong();
+		private final AtomicLong totalTime = new AtomicLong();
+
+		SqlStatistic(final String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+		public long getAverageTime() {
+			final long currentCount = count.get();
+			return currentCount == 0 ? 0 : totalTime.get() / currentCount;
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		public long getMaxTime() {
+			return maxTime.get();
+		}
+
+		public long getTotalTime() {
+			return totalTime.get();
+		}
+
+		void add(final long executionTime) {
+			count.incrementAndGet();
+			totalTime.addAndGet(executionTime);
+			long currentMax = maxTime.get();
+			while (executionTime > currentMax && !maxTime.compareAndSet(currentMax, executionTime)) {
+				currentMax = maxTime.get();
+			}
+		}
+	}
+}
@@ -4,9 +4,12 @@ package org.restsql.core.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
@@ -120,4 +123,32 @@ public class TableMetaDataImpl implements TableMetaData {
 	void setTableAlias(String tableAlias) {
 		this.tableAlias = tableAlias;
 	}
+
+	/** Rebuilds the column map and primary keys after unmarshalling from a meta data snapshot. */
+	@SuppressWarnings("unused")
+	private void afterUnmarshal(final Unmarshaller unmarshaller, final Object parent) {
+		columnMap = new HashMap<String, ColumnMetaData>();
+		if (columnList != null) {
+			for (final ColumnMetaData column : columnList) {
+				((ColumnMetaDataImpl) column).setTableRole(tableRole);
+				columnMap.put(column.getColumnLabel(), column);
+			}
+		}
+		columnList = columnMap.values();
+
+		primaryKeys = new ArrayList<ColumnMetaData>();
+		if (primaryKeyNames == null) {
+			primaryKeyNames = new ArrayList<String>();
+		}
+		final Set<String> names = new HashSet<String>(primaryKeyNames.size());
+		for (final String name : primaryKeyNames) {
+			if (names.add(name)) {
+				for (final ColumnMetaData column : columnMap.values()) {
+					if (column.isPrimaryKey() && column.getQualifiedColumnName().equals(name)) {
+						primaryKeys.add(column);
+					}
+				}
+			}
+		}
+	}
 }
\ No newline at end of file
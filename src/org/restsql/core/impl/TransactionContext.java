@@ -0,0 +1,114 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.restsql.core.Factory;
+import org.restsql.core.Request;
+import org.restsql.core.SqlResourceException;
+import org.restsql.core.Trigger;
+
+/**
+ * Binds a transaction connection to the current thread, so that reads and writes of SQL Resources executed by the
+ * thread, including those by request deserializers, run in one transaction. Used by batch requests. Usage:
+ *
+ * <pre>
+ * TransactionContext.begin(defaultDatabase);
+ * try {
+ * 	// execute requests
+ * 	TransactionContext.commit();
+ * } finally {
+ * 	TransactionContext.end();
+ * }
+ * </pre>
+ *
+ * {@link #end()} rolls back uncommitted work and closes the connection. After-execution triggers, including
+ * asynchronous ones, are deferred until {@link #commit()}, so that they do not fire for writes that are rolled back.
+ *
+ * @author Mark Sawers
+ */
+public class TransactionContext {
+	private static final ThreadLocal<Connection> connection = new ThreadLocal<Connection>();
+	private static final ThreadLocal<List<DeferredTriggers>> deferredTriggers = new ThreadLocal<List<DeferredTriggers>>();
+
+	/** Opens a connection with auto-commit off and binds it to the current thread. */
+	public static void begin(final String defaultDatabase) throws SQLException {
+		if (connection.get() != null) {
+			throw new IllegalStateException("Transaction already active on this thread");
+		}
+		final Connection newConnection = Factory.getConnection(defaultDatabase);
+		try {
+			newConnection.setAutoCommit(false);
+		} catch (final SQLException exception) {
+			newConnection.close();
+			throw exception;
+		}
+		connection.set(newConnection);
+		deferredTriggers.set(new ArrayList<DeferredTriggers>());
+	}
+
+	/**
+	 * Commits the transaction and executes the deferred after-execution triggers in order.
+	 *
+	 * @throws SqlResourceException if a trigger exception is thrown, after the commit
+	 */
+	public static void commit() throws SQLException, SqlResourceException {
+		connection.get().commit();
+		final List<DeferredTriggers> triggers = deferredTriggers.get();
+		deferredTriggers.set(new ArrayList<DeferredTriggers>());
+		for (final DeferredTriggers deferred : triggers) {
+			TriggerManager.executeTriggers(deferred.table, deferred.request, false);
+		}
+	}
+
+	/** Rolls back uncommitted work, drops its deferred triggers, closes the connection and unbinds it. */
+	public static void end() {
+		final Connection currentConnection = connection.get();
+		if (currentConnection != null) {
+			connection.remove();
+			deferredTriggers.remove();
+			try {
+				currentConnection.rollback();
+			} catch (final SQLException ignored) {
+			}
+			try {
+				currentConnection.setAutoCommit(true);
+				currentConnection.close();
+			} catch (final SQLException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Defers the request's after-execution triggers until commit, if a transaction is active.
+	 *
+	 * @param table dispatch table built by {@link TriggerManager#buildDispatchTable(List)}
+	 * @return true if deferred, false if no transaction is active
+	 */
+	static boolean deferAfterTriggers(final Trigger[][] table, final Request request) {
+		final List<DeferredTriggers> triggers = deferredTriggers.get();
+		if (triggers == null) {
+			return false;
+		}
+		triggers.add(new DeferredTriggers(table, request));
+		return true;
+	}
+
+	/** Returns the current thread's transaction connection, or null if no transaction is active. */
+	static Connection getConnection() {
+		return connection.get();
+	}
+
+	private static class DeferredTriggers {
+		private final Request request;
+		private final Trigger[][] table;
+
+		DeferredTriggers(final Trigger[][] table, final Request request) {
+			this.table = table;
+			this.request = request;
+		}
+	}
+}
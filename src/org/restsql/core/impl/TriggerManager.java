@@ -7,12 +7,16 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
 
+import org.restsql.core.AbstractTrigger;
 import org.restsql.core.Config;
 import org.restsql.core.Request;
 import org.restsql.core.SqlResourceException;
@@ -21,15 +25,50 @@ import org.restsql.core.Trigger;
 /**
  * Manages trigger instantiation and execution. Triggers are defined in a properties file, whose location is referenced
  * in the restSQL properties file.
+ * <p>
+ * SQL Resources execute triggers from a dispatch table built once when the resource is constructed. The table holds an
+ * array of triggers per phase and request type, containing only the triggers that implement that callback, so a
+ * request on a resource without triggers costs no lookups.
+ * <p>
+ * A trigger may be declared asynchronous by appending <code>;async</code> to its scope in the definitions file, e.g.
+ * <code>com.acme.AuditTrigger=film,actor;async</code>. Its after-phase callbacks are then run by the
+ * {@link AsyncTriggerExecutor} once the request completes. Before-phase callbacks always run synchronously.
  * 
  * @author Mark Sawers
  */
 public class TriggerManager {
+	static final String MODIFIER_ASYNC = "async";
+	static final String TOKEN_MODIFIER_SEPARATOR = ";";
 	static final String TOKEN_WILDCARD = "*";
 	private static final int DEFAULT_SUBLIST_SIZE = 5;
+	private static final Trigger[] NO_TRIGGERS = new Trigger[0];
+	private static final int NUMBER_REQUEST_TYPES = Request.Type.values().length;
+
+	// Triggers whose after-phase callbacks are executed asynchronously
+	private static final Set<Trigger> asyncTriggers = Collections
+			.newSetFromMap(new IdentityHashMap<Trigger, Boolean>());
 
 	// Map<sqlResource, List<Trigger>> -- trigger may repeat
-	private static Map<String, List<Trigger>> triggers;
+	private static volatile Map<String, List<Trigger>> triggers;
+
+	/**
+	 * Builds dispatch table for the triggers, indexed by phase and request type. Each entry contains only the triggers
+	 * that override the corresponding callback of {@link AbstractTrigger}. The after phase is split into synchronous and
+	 * asynchronous triggers.
+	 * 
+	 * @param triggers triggers in execution order
+	 * @return dispatch table for use with {@link #executeTriggers(Trigger[][], Request, boolean)}
+	 */
+	public static Trigger[][] buildDispatchTable(final List<Trigger> triggers) {
+		final Trigger[][] table = new Trigger[NUMBER_REQUEST_TYPES * 3][];
+		for (final Request.Type type : Request.Type.values()) {
+			table[getDispatchIndex(type, true)] = getImplementingTriggers(triggers, type, true, null);
+			table[getDispatchIndex(type, false)] = getImplementingTriggers(triggers, type, false,
+					Boolean.FALSE);
+			table[getAsyncDispatchIndex(type)] = getImplementingTriggers(triggers, type, false, Boolean.TRUE);
+		}
+		return table;
+	}
 
 	/**
 	 * Executes all trigger defined for the resource.
@@ -41,51 +80,82 @@ public class TriggerManager {
 	 */
 	public static void executeTriggers(final String sqlResource, final Request request, final boolean before)
 			throws SqlResourceException {
-
-		// Load triggers if necessary
-		if (triggers == null) {
-			Properties definitions = getTriggerDefinitions();
-			loadTriggers(definitions);
-		}
-
-		// Execute triggers scoped to this particulal SqlResource
-		if (triggers.containsKey(sqlResource)) {
-			for (final Trigger trigger : triggers.get(sqlResource)) {
+		List<Trigger> deferred = null;
+		for (final Trigger trigger : getTriggers(sqlResource)) {
+			if (!before && isAsync(trigger)) {
+				if (deferred == null) {
+					deferred = new ArrayList<Trigger>(DEFAULT_SUBLIST_SIZE);
+				}
+				deferred.add(trigger);
+			} else {
 				executeTrigger(request, trigger, before);
 			}
 		}
+		if (deferred != null) {
+			AsyncTriggerExecutor.execute(request, deferred.toArray(new Trigger[deferred.size()]));
+		}
+	}
 
-		// Execute triggers scoped to all SqlResources
-		if (triggers.containsKey(TOKEN_WILDCARD)) {
-			for (final Trigger trigger : triggers.get(TOKEN_WILDCARD)) {
-				executeTrigger(request, trigger, before);
+	/**
+	 * Executes triggers from a dispatch table.
+	 * 
+	 * @param table dispatch table built by {@link #buildDispatchTable(List)}
+	 * @param request restSQL request
+	 * @param before true if before execution; false if after execution
+	 * @throws SqlResourceException if a trigger exception is thrown or database error occurs
+	 */
+	public static void executeTriggers(final Trigger[][] table, final Request request, final boolean before)
+			throws SqlResourceException {
+		for (final Trigger trigger : table[getDispatchIndex(request.getType(), before)]) {
+			executeTrigger(request, trigger, before);
+		}
+		if (!before) {
+			final Trigger[] deferred = table[getAsyncDispatchIndex(request.getType())];
+			if (deferred.length > 0) {
+				AsyncTriggerExecutor.execute(request, deferred);
 			}
 		}
 	}
 
+	/**
+	 * Returns triggers for the resource in execution order, those scoped to the resource followed by those scoped to
+	 * all resources. Loads the trigger definitions on first access.
+	 */
+	public static List<Trigger> getTriggers(final String sqlResource) {
+		final Map<String, List<Trigger>> triggerMap = getTriggerMap();
+		final List<Trigger> resourceTriggers = triggerMap.get(sqlResource);
+		final List<Trigger> wildcardTriggers = triggerMap.get(TOKEN_WILDCARD);
+		final List<Trigger> list = new ArrayList<Trigger>((resourceTriggers == null ? 0 : resourceTriggers
+				.size())
+				+ (wildcardTriggers == null ? 0 : wildcardTriggers.size()));
+		if (resourceTriggers != null) {
+			list.addAll(resourceTriggers);
+		}
+		if (wildcardTriggers != null) {
+			list.addAll(wildcardTriggers);
+		}
+		return list;
+	}
+
 	// Package-level utils, also for testing
 
 	/**
 	 * Adds trigger with the specified scope to the triggers data structure. Access is package-level to allow for
 	 * testing.
 	 */
-	static void addTrigger(final Trigger trigger, final String sqlResources) {
-		if (triggers == null) {
-			triggers = new HashMap<String, List<Trigger>>();
-		}
+	static synchronized void addTrigger(final Trigger trigger, final String sqlResources) {
+		addTrigger(trigger, sqlResources, false);
+	}
 
-		if (sqlResources != null && sqlResources.length() > 0) {
-			final StringTokenizer tokenizer = new StringTokenizer(sqlResources, ",");
-			while (tokenizer.hasMoreTokens()) {
-				final String sqlResource = tokenizer.nextToken();
-				List<Trigger> subList = triggers.get(sqlResource);
-				if (subList == null) {
-					subList = new ArrayList<Trigger>(DEFAULT_SUBLIST_SIZE);
-					triggers.put(sqlResource, subList);
-				}
-				subList.add(trigger);
-			}
-		}
+	/**
+	 * Adds trigger with the specified scope and execution mode to the triggers data structure. Access is package-level
+	 * to allow for testing. The structure is copied, added to and then published, so that unsynchronized readers never
+	 * see a partially built one.
+	 */
+	static synchronized void addTrigger(final Trigger trigger, final String sqlResources, final boolean async) {
+		final Map<String, List<Trigger>> triggerMap = copyTriggerMap();
+		addTrigger(triggerMap, trigger, sqlResources, async);
+		triggers = triggerMap;
 	}
 
 	/**
@@ -93,7 +163,8 @@ public class TriggerManager {
 	 * testability.
 	 */
 	@SuppressWarnings("unchecked")
-	static void loadTriggers(final Properties definitions) {
+	static synchronized void loadTriggers(final Properties definitions) {
+		final Map<String, List<Trigger>> triggerMap = copyTriggerMap();
 		String triggersClasspath = Config.properties.getProperty(Config.KEY_TRIGGERS_CLASSPATH, null);
 		if (Config.logger.isInfoEnabled()) {
 			if (triggersClasspath != null) {
@@ -116,22 +187,31 @@ public class TriggerManager {
 				}
 
 				final Trigger trigger = triggerClass.newInstance();
-				addTrigger(trigger, definitions.getProperty(triggerClassName));
+				String scope = definitions.getProperty(triggerClassName);
+				boolean async = false;
+				final int modifierIndex = scope.indexOf(TOKEN_MODIFIER_SEPARATOR);
+				if (modifierIndex >= 0) {
+					final String modifier = scope.substring(modifierIndex + 1).trim();
+					scope = scope.substring(0, modifierIndex).trim();
+					if (modifier.equalsIgnoreCase(MODIFIER_ASYNC)) {
+						async = true;
+					} else {
+						Config.logger.warn("Trigger definition for " + triggerClassName
+								+ " contains unknown modifier '" + modifier + "' -- ignored");
+					}
+				}
+				addTrigger(triggerMap, trigger, scope, async);
 			} catch (final Exception exception) {
 				Config.logger.error("Failed to load trigger " + triggerClassName, exception);
 			}
 		}
-		if (triggers == null) {
-			triggers = new HashMap<String, List<Trigger>>();
-		}
+		triggers = triggerMap;
 	}
 
-	// Private utils
-
 	/**
-	 * Executes trigger method appropriate for the request.
+	 * Executes trigger method appropriate for the request. Package level access for the {@link AsyncTriggerExecutor}.
 	 */
-	private static void executeTrigger(final Request request, final Trigger trigger, final boolean before)
+	static void executeTrigger(final Request request, final Trigger trigger, final boolean before)
 			throws SqlResourceException {
 		switch (request.getType()) {
 			case SELECT:
@@ -165,6 +245,99 @@ public class TriggerManager {
 		}
 	}
 
+	/** Returns true if the trigger's after-phase callbacks are executed asynchronously. */
+	static synchronized boolean isAsync(final Trigger trigger) {
+		return asyncTriggers.contains(trigger);
+	}
+
+	// Private utils
+
+	/** Adds trigger with the specified scope and execution mode to an unpublished triggers data structure. */
+	private static void addTrigger(final Map<String, List<Trigger>> triggerMap, final Trigger trigger,
+			final String sqlResources, final boolean async) {
+		if (async) {
+			asyncTriggers.add(trigger);
+		}
+		if (sqlResources != null && sqlResources.length() > 0) {
+			final StringTokenizer tokenizer = new StringTokenizer(sqlResources, ",");
+			while (tokenizer.hasMoreTokens()) {
+				final String sqlResource = tokenizer.nextToken();
+				List<Trigger> subList = triggerMap.get(sqlResource);
+				if (subList == null) {
+					subList = new ArrayList<Trigger>(DEFAULT_SUBLIST_SIZE);
+					triggerMap.put(sqlResource, subList);
+				}
+				subList.add(trigger);
+			}
+		}
+	}
+
+	/** Returns a copy of the published triggers data structure, or an empty one if none is published. */
+	private static Map<String, List<Trigger>> copyTriggerMap() {
+		final Map<String, List<Trigger>> triggerMap = new HashMap<String, List<Trigger>>();
+		if (triggers != null) {
+			for (final Map.Entry<String, List<Trigger>> entry : triggers.entrySet()) {
+				triggerMap.put(entry.getKey(), new ArrayList<Trigger>(entry.getValue()));
+			}
+		}
+		return triggerMap;
+	}
+
+	private static int getAsyncDispatchIndex(final Request.Type type) {
+		return NUMBER_REQUEST_TYPES * 2 + type.ordinal();
+	}
+
+	private static int getDispatchIndex(final Request.Type type, final boolean before) {
+		return before ? type.ordinal() : NUMBER_REQUEST_TYPES + type.ordinal();
+	}
+
+	/**
+	 * Returns triggers that implement the callback for the request type and phase. If async is not null, only returns
+	 * triggers with the matching execution mode.
+	 */
+	private static Trigger[] getImplementingTriggers(final List<Trigger> triggers, final Request.Type type,
+			final boolean before, final Boolean async) {
+		if (triggers == null || triggers.isEmpty()) {
+			return NO_TRIGGERS;
+		}
+		final String methodName = (before ? "before" : "after") + type.toString().charAt(0)
+				+ type.toString().substring(1).toLowerCase();
+		final List<Trigger> implementing = new ArrayList<Trigger>(triggers.size());
+		for (final Trigger trigger : triggers) {
+			if (async != null && async.booleanValue() != isAsync(trigger)) {
+				continue;
+			}
+			if (trigger instanceof AbstractTrigger) {
+				try {
+					final Class<?> declaringClass = trigger.getClass().getMethod(methodName, Request.class)
+							.getDeclaringClass();
+					if (declaringClass == AbstractTrigger.class) {
+						// No-op inherited from AbstractTrigger
+						continue;
+					}
+				} catch (final NoSuchMethodException exception) {
+					// Cannot happen, all callbacks are declared by the interface
+				}
+			}
+			implementing.add(trigger);
+		}
+		return implementing.isEmpty() ? NO_TRIGGERS : implementing.toArray(new Trigger[implementing.size()]);
+	}
+
+	/** Returns the trigger map, loading the definitions on first access. */
+	private static Map<String, List<Trigger>> getTriggerMap() {
+		Map<String, List<Trigger>> triggerMap = triggers;
+		if (triggerMap == null) {
+			synchronized (TriggerManager.class) {
+				if (triggers == null) {
+					loadTriggers(getTriggerDefinitions());
+				}
+				triggerMap = triggers;
+			}
+		}
+		return triggerMap;
+	}
+
 	/**
 	 * Loads trigger definition properties file and then .
 	 */
@@ -1,40 +1,76 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core.impl;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.lang.StringEscapeUtils;
 import org.restsql.core.ColumnMetaData;
 import org.restsql.core.Config;
-import org.restsql.core.ResponseSerializer;
 import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceMetaData;
+import org.restsql.core.StreamingResponseSerializer;
 
 /**
- * Converts read/write results to an XML document.
- * 
+ * Converts read/write results to an XML document. Reads may be streamed as rows are read, by the service if
+ * <code>response.streamXml</code> is true. Each row element is built from precomputed <code> label="</code> attribute
+ * fragments, and values are escaped only if they contain characters needing it.
+ *
  * @author Mark Sawers
  */
-public class XmlResponseSerializer implements ResponseSerializer {
+public class XmlResponseSerializer implements StreamingResponseSerializer {
+	private static final boolean[] ESCAPED_CHARS = new boolean[128];
 	private static boolean useXmlDirective = Boolean.valueOf(Config.properties.getProperty(
 			Config.KEY_RESPONSE_USE_XML_DIRECTIVE, Config.DEFAULT_RESPONSE_USE_XML_DIRECTIVE));
 	private static boolean useXmlSchema = Boolean.valueOf(Config.properties.getProperty(
 			Config.KEY_RESPONSE_USE_XML_SCHEMA, Config.DEFAULT_RESPONSE_USE_XML_SCHEMA));
 
+	static {
+		ESCAPED_CHARS['&'] = true;
+		ESCAPED_CHARS['<'] = true;
+		ESCAPED_CHARS['>'] = true;
+		ESCAPED_CHARS['"'] = true;
+		ESCAPED_CHARS['\''] = true;
+	}
+
+	private final int flushInterval = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_RESPONSE_FLUSH_INTERVAL, Config.DEFAULT_RESPONSE_FLUSH_INTERVAL));
+
 	@Override
 	public String getSupportedMediaType() {
 		return "application/xml";
 	}
-	
+
+	/**
+	 * Writes flat or hierarchical select results as they are read.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param writer output
+	 */
+	@Override
+	public void serializeRead(final SqlResource sqlResource, final ResultSet resultSet, final Writer writer)
+			throws SQLException, IOException {
+		if (sqlResource.getMetaData().isHierarchical()) {
+			serializeReadHierarchical(sqlResource, resultSet, writer);
+		} else {
+			serializeReadFlat(sqlResource, resultSet, writer);
+		}
+	}
+
 	/**
 	 * Converts hierarchical select results to an XML document.
-	 * 
+	 *
 	 * @param sqlResource SQL resource
 	 * @param results results
 	 * @return XML string
 	 */
+	@Override
 	public String serializeReadHierarchical(final SqlResource sqlResource,
 			final List<Map<String, Object>> results) {
 		final StringBuilder string = new StringBuilder(results.size() * 100);
@@ -46,36 +82,29 @@ public class XmlResponseSerializer implements ResponseSerializer {
 
 	/**
 	 * Converts flat select results to an XML document.
-	 * 
+	 *
 	 * @param sqlResource SQL resource
 	 * @param resultSet results
 	 * @return XML string
 	 */
+	@Override
 	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
 			throws SQLException {
-		final StringBuilder string = new StringBuilder(1000);
-		appendReadDocStart(string);
-		while (resultSet.next()) {
-			string.append("\n\t<");
-			string.append(sqlResource.getMetaData().getParent().getTableAlias());
-			for (final ColumnMetaData column : sqlResource.getMetaData().getAllReadColumns()) {
-				if (!column.isNonqueriedForeignKey()) {
-					appendNameValuePair(string, column.getColumnLabel(), SqlUtils.getObjectByColumnNumber(
-							column, resultSet));
-				}
-			}
-			string.append(" />");
+		final StringWriter writer = new StringWriter(1000);
+		try {
+			serializeReadFlat(sqlResource, resultSet, writer);
+		} catch (final IOException exception) {
+			// Not thrown by StringWriter
 		}
-		appendReadDocEnd(string);
-		return string.toString();
-
+		return writer.toString();
 	}
 
 	/**
 	 * Converts write results to an XML document.
-	 * 
+	 *
 	 * @param rowsAffected rows affected
 	 */
+	@Override
 	public String serializeWrite(final int rowsAffected) {
 		final StringBuilder string = new StringBuilder(250);
 		if (useXmlDirective) {
@@ -102,14 +131,61 @@ public class XmlResponseSerializer implements ResponseSerializer {
 		useXmlSchema = use;
 	}
 
-	// Private utils
+	// Package level utils (for testability)
+
+	/**
+	 * Appends value escaped as commons-lang's <code>StringEscapeUtils.escapeXml()</code> does, with the five basic
+	 * entities and numeric references for non-ASCII characters, appending runs of characters needing no escaping in
+	 * bulk. Unlike commons-lang, a surrogate pair is referenced as one code point, since references to surrogates are
+	 * not well-formed XML.
+	 */
+	void appendEscaped(final StringBuilder string, final String value) {
+		final int length = value.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c < 128 && !ESCAPED_CHARS[c]) {
+				continue;
+			}
+			string.append(value, start, i);
+			switch (c) {
+				case '&':
+					string.append("&amp;");
+					break;
+				case '<':
+					string.append("&lt;");
+					break;
+				case '>':
+					string.append("&gt;");
+					break;
+				case '"':
+					string.append("&quot;");
+					break;
+				case '\'':
+					string.append("&apos;");
+					break;
+				default:
+					string.append("&#");
+					string.append(value.codePointAt(i));
+					string.append(';');
+					if (Character.isHighSurrogate(c) && i + 1 < length
+							&& Character.isLowSurrogate(value.charAt(i + 1))) {
+						i++;
+					}
+			}
+			start = i + 1;
+		}
+		string.append(value, start, length);
+	}
+
+	// Private utils
 
 	private void appendNameValuePair(final StringBuilder string, final String name, final Object value) {
 		if (value != null) {
-			string.append(" ");
+			string.append(' ');
 			string.append(name);
 			string.append("=\"");
-			string.append(StringEscapeUtils.escapeXml(value.toString()));
+			appendValue(string, value);
 			string.append('"');
 		}
 	}
@@ -130,50 +206,159 @@ public class XmlResponseSerializer implements ResponseSerializer {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private void serializeRows(final SqlResource sqlResource, final List<Map<String, Object>> rows,
-			final StringBuilder string, final int level) {
-		boolean hierarchical = false;
-		String tableAlias = sqlResource.getMetaData().getParent().getTableAlias();
-		if (level == 2) {
-			tableAlias = sqlResource.getMetaData().getChild().getTableAlias();
+	/** Appends attributes for the columns' non-null values, using their precomputed fragments. */
+	private void appendRowAttributes(final StringBuilder string, final List<ColumnMetaData> columns,
+			final String[] fragments, final ResultSet resultSet) throws SQLException {
+		for (int i = 0; i < fragments.length; i++) {
+			final Object value = SqlUtils.getObjectByColumnLabel(columns.get(i), resultSet);
+			if (value != null) {
+				string.append(fragments[i]);
+				appendValue(string, value);
+				string.append('"');
+			}
 		}
-		for (final Map<String, Object> row : rows) {
-			if (level == 1) {
-				string.append("\n\t<");
-			} else {
-				string.append("\n\t\t<");
+	}
+
+	/** Appends numbers and booleans as is and other values escaped. */
+	private void appendValue(final StringBuilder string, final Object value) {
+		if (value instanceof Number || value instanceof Boolean) {
+			string.append(value);
+		} else {
+			appendEscaped(string, value.toString());
+		}
+	}
+
+	/** Returns <code> label="</code> fragments for the columns. */
+	private String[] getAttributeFragments(final List<ColumnMetaData> columns) {
+		final String[] fragments = new String[columns.size()];
+		for (int i = 0; i < fragments.length; i++) {
+			fragments[i] = " " + columns.get(i).getColumnLabel() + "=\"";
+		}
+		return fragments;
+	}
+
+	private void serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet, final Writer writer)
+			throws SQLException, IOException {
+		final List<ColumnMetaData> columns = new ArrayList<ColumnMetaData>();
+		for (final ColumnMetaData column : sqlResource.getMetaData().getAllReadColumns()) {
+			if (!column.isNonqueriedForeignKey()) {
+				columns.add(column);
 			}
-			string.append(tableAlias);
+		}
+		final String[] fragments = getAttributeFragments(columns);
+		final String rowStart = "\n\t<" + sqlResource.getMetaData().getParent().getTableAlias();
+		final StringBuilder line = new StringBuilder(500);
+		appendReadDocStart(line);
+		int rowCount = 0;
+		while (resultSet.next()) {
+			line.append(rowStart);
+			for (int i = 0; i < fragments.length; i++) {
+				final Object value = SqlUtils.getObjectByColumnNumber(columns.get(i), resultSet);
+				if (value != null) {
+					line.append(fragments[i]);
+					appendValue(line, value);
+					line.append('"');
+				}
+			}
+			line.append(" />");
+			writeLine(line, writer, ++rowCount);
+		}
+		appendReadDocEnd(line);
+		writer.append(line);
+	}
 
-			// Do parent attribute columns
-			for (final String columnLabel : row.keySet()) {
-				final Object value = row.get(columnLabel);
-				if (!(value instanceof List<?>)) {
-					appendNameValuePair(string, columnLabel, value);
+	/**
+	 * Writes a parent element with its children as the parent changes. Rows are ordered by parent primary key, so each
+	 * parent's rows are adjacent.
+	 */
+	private void serializeReadHierarchical(final SqlResource sqlResource, final ResultSet resultSet,
+			final Writer writer) throws SQLException, IOException {
+		final SqlResourceMetaData metaData = sqlResource.getMetaData();
+		final List<ColumnMetaData> parentColumns = metaData.getParentReadColumns();
+		final List<ColumnMetaData> childColumns = metaData.getChildReadColumns();
+		final String[] parentFragments = getAttributeFragments(parentColumns);
+		final String[] childFragments = getAttributeFragments(childColumns);
+		final String parentStart = "\n\t<" + metaData.getParent().getTableAlias();
+		final String parentEnd = "\n\t</" + metaData.getParent().getTableAlias() + ">";
+		final String childStart = "\n\t\t<" + metaData.getChild().getTableAlias();
+		final StringBuilder line = new StringBuilder(1000);
+		appendReadDocStart(line);
+		List<Object> currentParentPkValues = null;
+		int parentCount = 0;
+		while (resultSet.next()) {
+			final List<Object> parentPkValues = new ArrayList<Object>(metaData.getParent().getPrimaryKeys().size());
+			for (final ColumnMetaData column : metaData.getParent().getPrimaryKeys()) {
+				parentPkValues.add(SqlUtils.getObjectByColumnLabel(column, resultSet));
+			}
+			if (!parentPkValues.equals(currentParentPkValues)) {
+				if (currentParentPkValues != null) {
+					line.append(parentEnd);
+					writeLine(line, writer, ++parentCount);
 				}
+				currentParentPkValues = parentPkValues;
+				line.append(parentStart);
+				appendRowAttributes(line, parentColumns, parentFragments, resultSet);
+				line.append('>');
 			}
 
-			// Do embedded child object columns
-			for (final String columnLabel : row.keySet()) {
-				final Object value = row.get(columnLabel);
-				if (value instanceof List<?>) {
-					hierarchical = true;
-					string.append(">");
-					final List<Map<String, Object>> childRows = (List<Map<String, Object>>) value;
-					serializeRows(sqlResource, childRows, string, 2);
+			// Append the child unless outer join found none
+			boolean nullPk = false;
+			for (final ColumnMetaData column : childColumns) {
+				if (column.isPrimaryKey() && SqlUtils.getObjectByColumnLabel(column, resultSet) == null) {
+					nullPk = true;
 				}
 			}
+			if (!nullPk) {
+				line.append(childStart);
+				appendRowAttributes(line, childColumns, childFragments, resultSet);
+				line.append(" />");
+			}
+		}
+		if (currentParentPkValues != null) {
+			line.append(parentEnd);
+		}
+		appendReadDocEnd(line);
+		writer.append(line);
+	}
 
-			if (hierarchical) {
+	/** One-level recursive method to serialize hierarchical results, with attributes before child elements. */
+	@SuppressWarnings("unchecked")
+	private void serializeRows(final SqlResource sqlResource, final List<Map<String, Object>> rows,
+			final StringBuilder string, final int level) {
+		final String rowStart;
+		if (level == 1) {
+			rowStart = "\n\t<" + sqlResource.getMetaData().getParent().getTableAlias();
+		} else {
+			rowStart = "\n\t\t<" + sqlResource.getMetaData().getChild().getTableAlias();
+		}
+		for (final Map<String, Object> row : rows) {
+			string.append(rowStart);
+			List<Map<String, Object>> childRows = null;
+			for (final Map.Entry<String, Object> entry : row.entrySet()) {
+				if (entry.getValue() instanceof List<?>) {
+					childRows = (List<Map<String, Object>>) entry.getValue();
+				} else {
+					appendNameValuePair(string, entry.getKey(), entry.getValue());
+				}
+			}
+			if (childRows != null) {
+				string.append('>');
+				serializeRows(sqlResource, childRows, string, 2);
 				string.append("\n\t</");
-				string.append(tableAlias);
-				string.append(">");
-			} else if (level == 2) {
-				string.append(" />");
+				string.append(sqlResource.getMetaData().getParent().getTableAlias());
+				string.append('>');
 			} else {
-				string.append(">");
+				string.append(" />");
 			}
 		}
 	}
+
+	/** Writes and clears the line, flushing the writer at the flush interval. */
+	private void writeLine(final StringBuilder line, final Writer writer, final int lineCount) throws IOException {
+		writer.append(line);
+		line.setLength(0);
+		if (flushInterval > 0 && lineCount % flushInterval == 0) {
+			writer.flush();
+		}
+	}
 }
@@ -24,6 +24,7 @@ import javax.xml.bind.annotation.XmlType;
  *   &lt;complexContent>
  *     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
  *       &lt;attribute name="default" use="required" type="{http://www.w3.org/2001/XMLSchema}string" />
+ *       &lt;attribute name="replicaReads" type="{http://www.w3.org/2001/XMLSchema}boolean" />
  *     &lt;/restriction>
  *   &lt;/complexContent>
  * &lt;/complexType>
@@ -37,6 +38,8 @@ public class Database {
 
     @XmlAttribute(name = "default", required = true)
     protected String _default;
+    @XmlAttribute(name = "replicaReads")
+    protected Boolean replicaReads;
 
     /**
      * Gets the value of the default property.
@@ -62,4 +65,28 @@ public class Database {
         this._default = value;
     }
 
+    /**
+     * Gets the value of the replicaReads property.
+     * 
+     * @return
+     *     possible object is
+     *     {@link Boolean }
+     *     
+     */
+    public Boolean isReplicaReads() {
+        return replicaReads;
+    }
+
+    /**
+     * Sets the value of the replicaReads property.
+     * 
+     * @param value
+     *     allowed object is
+     *     {@link Boolean }
+     *     
+     */
+    public void setReplicaReads(Boolean value) {
+        this.replicaReads = value;
+    }
+
 }
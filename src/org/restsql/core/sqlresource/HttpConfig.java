@@ -25,6 +25,7 @@ import javax.xml.bind.annotation.XmlType;
  *     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
  *       &lt;sequence>
  *         &lt;element name="response" type="{http://restsql.org/schema}HttpResponse"/>
+ *         &lt;element name="concurrency" type="{http://restsql.org/schema}HttpConcurrency" minOccurs="0"/>
  *       &lt;/sequence>
  *     &lt;/restriction>
  *   &lt;/complexContent>
@@ -35,12 +36,14 @@ import javax.xml.bind.annotation.XmlType;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "HttpConfig", propOrder = {
-    "response"
+    "response",
+    "concurrency"
 })
 public class HttpConfig {
 
     @XmlElement(required = true)
     protected HttpResponse response;
+    protected HttpConcurrency concurrency;
 
     /**
      * Gets the value of the response property.
@@ -66,4 +69,28 @@ public class HttpConfig {
         this.response = value;
     }
 
+    /**
+     * Gets the value of the concurrency property.
+     * 
+     * @return
+     *     possible object is
+     *     {@link HttpConcurrency }
+     *     
+     */
+    public HttpConcurrency getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the value of the concurrency property.
+     * 
+     * @param value
+     *     allowed object is
+     *     {@link HttpConcurrency }
+     *     
+     */
+    public void setConcurrency(HttpConcurrency value) {
+        this.concurrency = value;
+    }
+
 }
@@ -24,6 +24,7 @@ import javax.xml.bind.annotation.XmlType;
  *   &lt;complexContent>
  *     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
  *       &lt;attribute name="cacheControl" type="{http://www.w3.org/2001/XMLSchema}string" />
+ *       &lt;attribute name="compressionThreshold" type="{http://www.w3.org/2001/XMLSchema}int" />
  *     &lt;/restriction>
  *   &lt;/complexContent>
  * &lt;/complexType>
@@ -37,6 +38,8 @@ public class HttpResponse {
 
     @XmlAttribute(name = "cacheControl")
     protected String cacheControl;
+    @XmlAttribute(name = "compressionThreshold")
+    protected Integer compressionThreshold;
 
     /**
      * Gets the value of the cacheControl property.
@@ -62,4 +65,28 @@ public class HttpResponse {
         this.cacheControl = value;
     }
 
+    /**
+     * Gets the value of the compressionThreshold property.
+     * 
+     * @return
+     *     possible object is
+     *     {@link Integer }
+     *     
+     */
+    public Integer getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Sets the value of the compressionThreshold property.
+     * 
+     * @param value
+     *     allowed object is
+     *     {@link Integer }
+     *     
+     */
+    public void setCompressionThreshold(Integer value) {
+        this.compressionThreshold = value;
+    }
+
 }
@@ -72,6 +72,14 @@ public class ObjectFactory {
         return new HttpConfig();
     }
 
+    /**
+     * Create an instance of {@link HttpConcurrency }
+     * 
+     */
+    public HttpConcurrency createHttpConcurrency() {
+        return new HttpConcurrency();
+    }
+
     /**
      * Create an instance of {@link Query }
      * 
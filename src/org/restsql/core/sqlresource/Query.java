@@ -10,6 +10,7 @@ package org.restsql.core.sqlresource;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlType;
 import javax.xml.bind.annotation.XmlValue;
 
@@ -23,6 +24,7 @@ import javax.xml.bind.annotation.XmlValue;
  * &lt;complexType name="Query">
  *   &lt;simpleContent>
  *     &lt;extension base="&lt;http://www.w3.org/2001/XMLSchema>string">
+ *       &lt;attribute name="timeout" type="{http://www.w3.org/2001/XMLSchema}int" />
  *     &lt;/extension>
  *   &lt;/simpleContent>
  * &lt;/complexType>
@@ -38,6 +40,8 @@ public class Query {
 
     @XmlValue
     protected String value;
+    @XmlAttribute(name = "timeout")
+    protected Integer timeout;
 
     /**
      * Gets the value of the value property.
@@ -63,4 +67,28 @@ public class Query {
         this.value = value;
     }
 
+    /**
+     * Gets the value of the timeout property.
+     * 
+     * @return
+     *     possible object is
+     *     {@link Integer }
+     *     
+     */
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the value of the timeout property.
+     * 
+     * @param value
+     *     allowed object is
+     *     {@link Integer }
+     *     
+     */
+    public void setTimeout(Integer value) {
+        this.timeout = value;
+    }
+
 }
@@ -14,7 +14,17 @@ public class SecurityFactory extends AbstractFactory {
 
 	/** Returns authorizer singleton. */
 	public static Authorizer getAuthorizer() {
-		return (Authorizer) getInstance(Config.KEY_AUTHORIZER, Config.DEFAULT_AUTHORIZER);
+		return (Authorizer) Implementations.authorizer.getInstance();
+	}
+
+	/** Resolves and creates the configured security implementations. Called by the service at startup. */
+	public static void initialize() {
+		getAuthorizer();
+	}
+
+	/** Holds the helpers for the security implementations, resolved once on first use. */
+	private static class Implementations {
+		static final FactoryHelper authorizer = getHelper(Config.KEY_AUTHORIZER, Config.DEFAULT_AUTHORIZER);
 	}
 
 }
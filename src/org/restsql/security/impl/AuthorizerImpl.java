@@ -5,12 +5,19 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.restsql.core.Config;
 import org.restsql.core.Request;
@@ -23,42 +30,57 @@ import org.restsql.security.SqlResourceRolePrivileges.Privilege;
  * Authorizes restSQL requests using privileges properties file, which maps roles to request types on SQL Resources. If
  * privileges properties are not defined or not able to load, authorization is disabled. In that case,
  * <code>isAuthorized()</code> always returns <code>true</code>.
- * 
+ * <p>
+ * The privileges are compiled into a table of the roles allowed per SQL Resource and request type, with the wildcard
+ * resource's roles merged in, so a check is a single lookup followed by role checks. Decisions may optionally be cached
+ * per principal for a short time. The file is checked for modification at a configurable interval and reloaded
+ * without a restart; the new table replaces the old one atomically.
+ *
  * @author Mark Sawers
  */
 public class AuthorizerImpl implements Authorizer {
-	private boolean authEnabled = false;
-	private String authStatusMessage;
-	private String configFileName;
-	// Map<sqlResource, List<SqlResourceRolePrivileges>>
-	private Map<String, List<SqlResourceRolePrivileges>> privilegeMap;
+	private static final String[] NO_ROLES = new String[0];
+
+	private final String configFileName;
+	private final int decisionCacheMaxSize;
+	private final long decisionCacheTtl;
+	private volatile long nextReloadCheck;
+	private volatile PrivilegeTable privilegeTable;
+	private final long reloadInterval;
 
 	/** For use by the Factory. Uses properties file specified in standard restSQL properties. */
 	public AuthorizerImpl() {
-		configFileName = Config.properties.getProperty(Config.KEY_SECURITY_PRIVILEGES, null);
-		loadPrivileges();
+		this(Config.properties.getProperty(Config.KEY_SECURITY_PRIVILEGES, null));
 	}
 
 	/** Creates object in test environment with specified properties file. */
 	AuthorizerImpl(String configFileName) {
 		this.configFileName = configFileName;
-		loadPrivileges();
+		decisionCacheTtl = Long.parseLong(Config.properties.getProperty(Config.KEY_SECURITY_DECISION_CACHE_TTL,
+				Config.DEFAULT_SECURITY_DECISION_CACHE_TTL));
+		decisionCacheMaxSize = Integer.parseInt(Config.properties.getProperty(
+				Config.KEY_SECURITY_DECISION_CACHE_SIZE, Config.DEFAULT_SECURITY_DECISION_CACHE_SIZE));
+		reloadInterval = Long.parseLong(Config.properties.getProperty(
+				Config.KEY_SECURITY_PRIVILEGES_RELOAD_INTERVAL, Config.DEFAULT_SECURITY_PRIVILEGES_RELOAD_INTERVAL));
+		privilegeTable = loadPrivileges();
+		nextReloadCheck = System.currentTimeMillis() + reloadInterval;
 	}
 
 	/** Returns true if authorization is enabled. */
 	public boolean isAuthorizationEnabled() {
-		return authEnabled;
+		return privilegeTable.authEnabled;
 	}
-	
+
 	/** Returns status message and string representation of all roles and associated privileges. */
 	@Override
 	public String dumpConfig() {
+		final PrivilegeTable table = privilegeTable;
 		final StringBuilder string = new StringBuilder(1000);
-		string.append(authStatusMessage);
-		if (authEnabled && privilegeMap.size() > 0) {
+		string.append(table.authStatusMessage);
+		if (table.authEnabled && table.privilegeMap.size() > 0) {
 			string.append("\n\n[SqlResource,*].[requestType,*]=role\n");
 			string.append("---------------------------------------------------------------------------\n");
-			for (final List<SqlResourceRolePrivileges> privObjList : privilegeMap.values()) {
+			for (final List<SqlResourceRolePrivileges> privObjList : table.privilegeMap.values()) {
 				for (final SqlResourceRolePrivileges privileges : privObjList) {
 					string.append(privileges.toString());
 					string.append("\n");
@@ -77,60 +99,99 @@ public class AuthorizerImpl implements Authorizer {
 	/** Returns true if user is authorized (or authorization is disabled), false otherwise. */
 	@Override
 	public boolean isAuthorized(SecurityContext context, Request.Type requestType, String sqlResource) {
+		checkForReload();
+		final PrivilegeTable table = privilegeTable;
+		if (!table.authEnabled) {
+			return true;
+		}
+
+		final String[] roles = table.getRoles(sqlResource, requestType);
+		if (roles.length == 0) {
+			return false;
+		}
+
+		// Check cache
+		String decisionKey = null;
+		if (table.decisions != null) {
+			final Principal principal = context.getUserPrincipal();
+			if (principal != null) {
+				decisionKey = principal.getName() + "|" + requestType.ordinal() + "|" + sqlResource;
+				final Decision decision = table.decisions.get(decisionKey);
+				if (decision != null && decision.expiration > System.currentTimeMillis()) {
+					return decision.authorized;
+				}
+			}
+		}
+
 		boolean authorized = false;
-		if (authEnabled) {
-			authorized = isAuthorized(context, requestType, privilegeMap.get(sqlResource));
-			if (!authorized) {
-				authorized = isAuthorized(context, requestType, privilegeMap.get(SqlResourceRolePrivileges.TOKEN_WILDCARD));
+		for (final String role : roles) {
+			if (context.isUserInRole(role)) {
+				authorized = true;
+				break;
 			}
-		} else {
-			authorized = true;
+		}
+
+		if (decisionKey != null) {
+			if (table.decisions.size() >= decisionCacheMaxSize) {
+				table.decisions.clear();
+			}
+			table.decisions.put(decisionKey, new Decision(authorized, System.currentTimeMillis()
+					+ decisionCacheTtl));
 		}
 		return authorized;
 	}
 
 	// Private utils
 
-	private boolean isAuthorized(final SecurityContext context, final Request.Type requestType,
-			final List<SqlResourceRolePrivileges> privilegeList) {
-		boolean authorized = false;
-		if (privilegeList != null) {
-			for (final SqlResourceRolePrivileges privileges : privilegeList) {
-				if (context.isUserInRole(privileges.getRoleName())
-						&& privileges.hasPrivilege(requestType)) {
-					authorized = true;
-					break;
+	/** Reloads the privileges if the reload interval has passed and the file has been modified. */
+	private void checkForReload() {
+		if (reloadInterval > 0 && configFileName != null) {
+			final long now = System.currentTimeMillis();
+			if (now >= nextReloadCheck) {
+				synchronized (this) {
+					if (now >= nextReloadCheck) {
+						nextReloadCheck = now + reloadInterval;
+						if (new File(configFileName).lastModified() != privilegeTable.lastModified) {
+							final PrivilegeTable table = loadPrivileges();
+							if (table.loadFailed) {
+								Config.logger.warn("Retaining previously loaded privileges");
+							} else {
+								privilegeTable = table;
+							}
+						}
+					}
 				}
 			}
 		}
-		return authorized;
 	}
 
 	/** Loads authorization config from configured properties file. */
-	private void loadPrivileges() {
+	private PrivilegeTable loadPrivileges() {
+		final PrivilegeTable table = new PrivilegeTable();
 		if (configFileName == null) {
 			// File not configured, log warning
-			authStatusMessage = "Authorization disabled -- No privileges defined. Use "
+			table.authStatusMessage = "Authorization disabled -- No privileges defined. Use "
 					+ Config.KEY_SECURITY_PRIVILEGES + " in restsql properties.";
-			Config.logger.warn(authStatusMessage);
+			Config.logger.warn(table.authStatusMessage);
 
 		} else {
-			authEnabled = true;
-			privilegeMap = new TreeMap<String, List<SqlResourceRolePrivileges>>();
+			table.authEnabled = true;
+			final Map<String, List<SqlResourceRolePrivileges>> privilegeMap = table.privilegeMap;
 			InputStream inputStream = null;
 			try {
 				final File file = new File(configFileName);
 				if (!file.exists()) {
 					// File not found, log error
-					authStatusMessage = "Authorization enabled -- But privileges properties file "
+					table.authStatusMessage = "Authorization enabled -- But privileges properties file "
 							+ configFileName + " not found";
-					Config.logger.error(authStatusMessage);
+					Config.logger.error(table.authStatusMessage);
 				} else {
 					if (Config.logger.isDebugEnabled()) {
 						Config.logger.debug("Loading privileges from " + configFileName);
 					}
 
 					// Load file into properties object
+					table.lastModified = file.lastModified();
 					final Properties properties = new Properties();
 					inputStream = new FileInputStream(file);
 					properties.load(inputStream);
@@ -191,7 +252,6 @@ public class AuthorizerImpl implements Authorizer {
 										} else {
 											privilegeMap.put(sqlResource, privObjectsList);
 										}
-										authEnabled = true;
 									}
 								}
 
@@ -207,23 +267,24 @@ public class AuthorizerImpl implements Authorizer {
 					// Log results
 					if (privilegeMap.size() == 0) {
 						// No valid privs found
-						authStatusMessage = "Authorization enabled -- But no privileges valid in "
+						table.authStatusMessage = "Authorization enabled -- But no privileges valid in "
 								+ configFileName;
-						Config.logger.error(authStatusMessage);
+						Config.logger.error(table.authStatusMessage);
 					} else {
 						// We're good!
-						authStatusMessage = "Authorization enabled -- Loaded privileges from "
+						table.authStatusMessage = "Authorization enabled -- Loaded privileges from "
 								+ configFileName;
 						if (Config.logger.isInfoEnabled()) {
-							Config.logger.info(authStatusMessage);
+							Config.logger.info(table.authStatusMessage);
 						}
 					}
 				}
 			} catch (final IOException exception) {
 				// Error reading file or parsing contents, log error
-				authStatusMessage = "Authorization enabled -- Failed to load privileges properties from "
+				table.authStatusMessage = "Authorization enabled -- Failed to load privileges properties from "
 						+ configFileName;
-				Config.logger.error(authStatusMessage, exception);
+				table.loadFailed = true;
+				Config.logger.error(table.authStatusMessage, exception);
 			} finally {
 				// Close stream
 				if (inputStream != null) {
@@ -234,6 +295,85 @@ public class AuthorizerImpl implements Authorizer {
 					}
 				}
 			}
+			table.compile(decisionCacheTtl > 0);
+		}
+		return table;
+	}
+
+	/** Cached authorization decision. */
+	private static class Decision {
+		final boolean authorized;
+		final long expiration;
+
+		Decision(final boolean authorized, final long expiration) {
+			this.authorized = authorized;
+			this.expiration = expiration;
+		}
+	}
+
+	/**
+	 * Immutable (once compiled) set of privileges from one load of the properties file. Holds the parsed privileges for
+	 * display as well as the roles allowed for each resource and request type.
+	 */
+	private static class PrivilegeTable {
+		boolean authEnabled = false;
+		String authStatusMessage;
+		Map<String, Decision> decisions;
+		long lastModified;
+		boolean loadFailed;
+		// Map<sqlResource, List<SqlResourceRolePrivileges>>
+		final Map<String, List<SqlResourceRolePrivileges>> privilegeMap = new TreeMap<String, List<SqlResourceRolePrivileges>>();
+		Map<String, Map<Request.Type, String[]>> roleMap;
+		Map<Request.Type, String[]> wildcardRoles;
+
+		/** Builds the per-resource role arrays, merging the wildcard resource's roles into every resource. */
+		void compile(final boolean cacheDecisions) {
+			final List<SqlResourceRolePrivileges> wildcardList = privilegeMap
+					.get(SqlResourceRolePrivileges.TOKEN_WILDCARD);
+			wildcardRoles = buildRoles(null, wildcardList);
+			roleMap = new HashMap<String, Map<Request.Type, String[]>>(privilegeMap.size() * 2);
+			for (final Map.Entry<String, List<SqlResourceRolePrivileges>> entry : privilegeMap.entrySet()) {
+				if (!entry.getKey().equals(SqlResourceRolePrivileges.TOKEN_WILDCARD)) {
+					roleMap.put(entry.getKey(), buildRoles(entry.getValue(), wildcardList));
+				}
+			}
+			roleMap = Collections.unmodifiableMap(roleMap);
+			if (cacheDecisions) {
+				decisions = new ConcurrentHashMap<String, Decision>();
+			}
+		}
+
+		/** Returns the roles allowed to perform the request type on the resource. */
+		String[] getRoles(final String sqlResource, final Request.Type requestType) {
+			Map<Request.Type, String[]> roles = roleMap.get(sqlResource);
+			if (roles == null) {
+				roles = wildcardRoles;
+			}
+			return roles.get(requestType);
+		}
+
+		private static Map<Request.Type, String[]> buildRoles(final List<SqlResourceRolePrivileges> resourceList,
+				final List<SqlResourceRolePrivileges> wildcardList) {
+			final Map<Request.Type, String[]> roles = new EnumMap<Request.Type, String[]>(Request.Type.class);
+			for (final Request.Type requestType : Request.Type.values()) {
+				final Set<String> roleSet = new LinkedHashSet<String>();
+				addRoles(roleSet, requestType, resourceList);
+				addRoles(roleSet, requestType, wildcardList);
+				roles.put(requestType, roleSet.size() == 0 ? NO_ROLES : roleSet.toArray(new String[roleSet
+						.size()]));
+			}
+			return roles;
+		}
+
+		private static void addRoles(final Set<String> roleSet, final Request.Type requestType,
+				final List<SqlResourceRolePrivileges> privilegeList) {
+			if (privilegeList != null) {
+				for (final SqlResourceRolePrivileges privileges : privilegeList) {
+					if (privileges.hasPrivilege(requestType)) {
+						roleSet.add(privileges.getRoleName());
+					}
+				}
+			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,510 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.restsql.core.Config;
+import org.restsql.core.Factory;
+import org.restsql.core.HttpRequestAttributes;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.NameValuePair;
+import org.restsql.core.Request;
+import org.restsql.core.RequestLogger;
+import org.restsql.core.RequestUtil;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceException;
+import org.restsql.core.impl.ConcurrencyLimiter;
+import org.restsql.core.impl.DatabaseExecutor;
+import org.restsql.core.impl.JsonUtil;
+import org.restsql.core.impl.TransactionContext;
+import org.restsql.core.sqlresource.SqlResourceDefinitionUtils;
+import org.restsql.security.SecurityFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Processes batch requests, <code>POST res/_batch</code>, executing a list of operations in one HTTP call. A JSON batch
+ * looks like:
+ *
+ * <pre>
+ * { "operations": [
+ * 	{ "method": "GET", "resource": "FilmActors", "resIds": [ "1" ] },
+ * 	{ "method": "GET", "resource": "Actor", "params": { "last_name": "GUINESS", "_limit": "10" } },
+ * 	{ "method": "PUT", "resource": "Actor", "resIds": [ "1" ], "params": { "first_name": "PENELOPE" } },
+ * 	{ "method": "POST", "resource": "Actor", "body": { "actors": [ { "actor_id": "1000", "first_name": "JOE" } ] } }
+ * 	]
+ * }
+ * </pre>
+ *
+ * and an XML batch:
+ *
+ * <pre>
+ * <![CDATA[
+ * <batch>
+ * 	<operation method="GET" resource="FilmActors"><resId>1</resId></operation>
+ * 	<operation method="PUT" resource="Actor"><resId>1</resId><param name="first_name" value="PENELOPE" /></operation>
+ * 	<operation method="POST" resource="Actor"><request><actor actor_id="1000" first_name="JOE" /></request></operation>
+ * </batch>
+ * ]]>
+ * </pre>
+ *
+ * Resource ids, params and bodies have the same meaning as in the equivalent single requests, and each operation is
+ * admitted by its resource's and the global concurrency limiters like a single request, or fails with 503. A batch of
+ * reads executes in order on the request thread and returns the status of each operation. If the
+ * {@link DatabaseExecutor} is enabled, the reads execute in parallel on its pool instead, at most
+ * <code>http.batch.maxParallelism</code> at a time, and on the request thread when the pool is full. A batch
+ * containing writes executes in order in one transaction on the default database of the first operation's resource,
+ * including its reads, and stops and rolls back at the first failed operation, returning that operation's status. Its
+ * after-execution triggers fire once the transaction commits.
+ * <p>
+ * The response contains the status and serialized response, or error message, of each executed operation:
+ *
+ * <pre>
+ * { "results": [
+ * 	{ "status": 200, "body": { "films": [ ... ] } },
+ * 	{ "status": 404, "message": "SQL Resource Actr not found" }
+ * 	]
+ * }
+ * </pre>
+ *
+ * <pre>
+ * <![CDATA[
+ * <batchResponse>
+ * 	<result status="200"><readResponse> ... </readResponse></result>
+ * 	<result status="404" message="SQL Resource Actr not found" />
+ * </batchResponse>
+ * ]]>
+ * </pre>
+ *
+ * @author Mark Sawers
+ */
+public class BatchRequestProcessor {
+	private final HttpRequestAttributes httpAttributes;
+	private final String requestMediaType;
+	private final String responseMediaType;
+	private final javax.ws.rs.core.SecurityContext securityContext;
+
+	BatchRequestProcessor(final HttpRequestAttributes httpAttributes, final String requestMediaType,
+			final String responseMediaType, final javax.ws.rs.core.SecurityContext securityContext) {
+		this.httpAttributes = httpAttributes;
+		this.requestMediaType = requestMediaType;
+		this.responseMediaType = responseMediaType;
+		this.securityContext = securityContext;
+	}
+
+	/**
+	 * Parses and executes the batch.
+	 *
+	 * @return results, with the http status of the batch
+	 * @throws InvalidRequestException if the batch cannot be parsed or is too large
+	 */
+	BatchResults execute(final String requestBody) throws SqlResourceException {
+		final List<Operation> operations;
+		if (MediaType.APPLICATION_JSON.equals(requestMediaType)) {
+			operations = parseJson(requestBody);
+		} else if (MediaType.APPLICATION_XML.equals(requestMediaType)) {
+			operations = parseXml(requestBody);
+		} else {
+			throw new InvalidRequestException("Batch request body must be " + MediaType.APPLICATION_JSON + " or "
+					+ MediaType.APPLICATION_XML);
+		}
+		final int maxOperations = Integer.parseInt(Config.properties.getProperty(
+				Config.KEY_HTTP_BATCH_MAX_OPERATIONS, Config.DEFAULT_HTTP_BATCH_MAX_OPERATIONS));
+		if (operations.size() > maxOperations) {
+			throw new InvalidRequestException("Batch contains " + operations.size()
+					+ " operations, more than the limit of " + maxOperations);
+		}
+
+		boolean hasWrites = false;
+		for (final Operation operation : operations) {
+			hasWrites |= operation.type != Request.Type.SELECT;
+		}
+		if (!hasWrites) {
+			return executeReads(operations);
+		} else {
+			return executeInTransaction(operations);
+		}
+	}
+
+	// Private utils
+
+	/**
+	 * Executes one operation once admitted by the concurrency limiters, returning its status and serialized response
+	 * or error message.
+	 */
+	private Result executeAdmittedOperation(final Operation operation) {
+		final ConcurrencyLimiter resourceLimiter = getLimiter(operation);
+		final ConcurrencyLimiter globalLimiter = ConcurrencyLimiter.getGlobalLimiter();
+		if (!ResResource.acquire(resourceLimiter, globalLimiter)) {
+			return rejectOperation(operation);
+		}
+		try {
+			return executeOperation(operation);
+		} finally {
+			ResResource.release(resourceLimiter, globalLimiter);
+		}
+	}
+
+	/** Executes one operation, returning its status and serialized response or error message. */
+	private Result executeOperation(final Operation operation) {
+		final RequestLogger requestLogger = Factory.getRequestLogger();
+		requestLogger.setHttpRequestAttributes(httpAttributes);
+		if (!SecurityFactory.getAuthorizer().isAuthorized(new SecurityContextAdapter(securityContext),
+				operation.type, operation.resName)) {
+			requestLogger.log(Status.FORBIDDEN.getStatusCode());
+			return new Result(Status.FORBIDDEN.getStatusCode(), null, "Not authorized to " + operation.method
+					+ " " + operation.resName);
+		}
+		try {
+			final SqlResource sqlResource = Factory.getSqlResource(operation.resName);
+			final List<NameValuePair> resIds = RequestUtil.getResIds(sqlResource, operation.resIds);
+			final String responseBody = ResResource.executeSqlResourceRequest(httpAttributes, operation.type,
+					operation.resName, sqlResource, resIds, operation.params, operation.body,
+					operation.body != null ? requestMediaType : null, responseMediaType, requestLogger);
+			requestLogger.log(responseBody);
+			return new Result(Status.OK.getStatusCode(), responseBody, null);
+		} catch (final SqlResourceException exception) {
+			final int status = HttpRequestHelper.getStatusCode(exception);
+			requestLogger.log(status, exception);
+			return new Result(status, null, exception.getMessage());
+		}
+	}
+
+	/** Executes operations in order in one transaction, stopping and rolling back at the first failure. */
+	private BatchResults executeInTransaction(final List<Operation> operations) throws SqlResourceException {
+		final List<Result> results = new ArrayList<Result>(operations.size());
+		try {
+			final SqlResource firstSqlResource = Factory.getSqlResource(operations.get(0).resName);
+			TransactionContext.begin(SqlResourceDefinitionUtils.getDefaultDatabase(firstSqlResource
+					.getDefinition()));
+			for (final Operation operation : operations) {
+				final Result result = executeAdmittedOperation(operation);
+				results.add(result);
+				if (result.status != Status.OK.getStatusCode()) {
+					return new BatchResults(result.status, results);
+				}
+			}
+			TransactionContext.commit();
+			return new BatchResults(Status.OK.getStatusCode(), results);
+		} catch (final SQLException exception) {
+			throw new SqlResourceException(exception);
+		} finally {
+			TransactionContext.end();
+		}
+	}
+
+	/**
+	 * Executes reads in order, or in parallel on the database executor if enabled, returning the status of each.
+	 * Parallel reads are admitted by the concurrency limiters before they are submitted and hold the permits until
+	 * complete, and are capped per batch, so that a batch neither bypasses the limits nor fills the executor queue.
+	 */
+	private BatchResults executeReads(final List<Operation> operations) {
+		final List<Result> results = new ArrayList<Result>(operations.size());
+		if (!DatabaseExecutor.isEnabled()) {
+			for (final Operation operation : operations) {
+				results.add(executeAdmittedOperation(operation));
+			}
+			return new BatchResults(Status.OK.getStatusCode(), results);
+		}
+
+		final Semaphore parallelism = new Semaphore(Math.max(1, Integer.parseInt(Config.properties.getProperty(
+				Config.KEY_HTTP_BATCH_MAX_PARALLELISM, Config.DEFAULT_HTTP_BATCH_MAX_PARALLELISM))));
+		final List<Future<Result>> futures = new ArrayList<Future<Result>>(operations.size());
+		for (final Operation operation : operations) {
+			parallelism.acquireUninterruptibly();
+			final ConcurrencyLimiter resourceLimiter = getLimiter(operation);
+			final ConcurrencyLimiter globalLimiter = ConcurrencyLimiter.getGlobalLimiter();
+			final Callable<Result> read;
+			if (ResResource.acquire(resourceLimiter, globalLimiter)) {
+				read = new Callable<Result>() {
+					@Override
+					public Result call() {
+						try {
+							return executeOperation(operation);
+						} finally {
+							ResResource.release(resourceLimiter, globalLimiter);
+							parallelism.release();
+						}
+					}
+				};
+			} else {
+				parallelism.release();
+				read = new Callable<Result>() {
+					@Override
+					public Result call() {
+						return rejectOperation(operation);
+					}
+				};
+			}
+			try {
+				futures.add(DatabaseExecutor.submit(read));
+			} catch (final RejectedExecutionException exception) {
+				final FutureTask<Result> task = new FutureTask<Result>(read);
+				task.run();
+				futures.add(task);
+			}
+		}
+		for (final Future<Result> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				future.cancel(true);
+				results.add(new Result(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null, "Interrupted"));
+			} catch (final ExecutionException exception) {
+				Config.logger.error("Batch read failed", exception.getCause());
+				results.add(new Result(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null, String
+						.valueOf(exception.getCause())));
+			}
+		}
+		return new BatchResults(Status.OK.getStatusCode(), results);
+	}
+
+	/** Returns the operation's resource concurrency limiter, or null if none or the resource is not found. */
+	private ConcurrencyLimiter getLimiter(final Operation operation) {
+		try {
+			return ConcurrencyLimiter.getLimiter(Factory.getSqlResource(operation.resName));
+		} catch (final SqlResourceException exception) {
+			return null; // reported by executeOperation()
+		}
+	}
+
+	private List<Operation> parseJson(final String requestBody) throws InvalidRequestException {
+		final List<Operation> operations = new ArrayList<Operation>();
+		try {
+			final Object operationList = ((JSONObject) new JSONParser().parse(requestBody)).get("operations");
+			if (!(operationList instanceof JSONArray)) {
+				throw new InvalidRequestException("Batch requires an operations array");
+			}
+			for (final Object element : (JSONArray) operationList) {
+				final JSONObject object = (JSONObject) element;
+				final Operation operation = new Operation((String) object.get("method"), (String) object
+						.get("resource"));
+				final JSONArray resIds = (JSONArray) object.get("resIds");
+				if (resIds != null) {
+					operation.resIds = new String[resIds.size()];
+					for (int i = 0; i < resIds.size(); i++) {
+						operation.resIds[i] = String.valueOf(resIds.get(i));
+					}
+				}
+				final JSONObject params = (JSONObject) object.get("params");
+				if (params != null) {
+					for (final Object entry : params.entrySet()) {
+						final String name = (String) ((Map.Entry<?, ?>) entry).getKey();
+						final Object value = ((Map.Entry<?, ?>) entry).getValue();
+						if (value instanceof JSONArray) {
+							for (final Object arrayValue : (JSONArray) value) {
+								operation.addParam(name, arrayValue);
+							}
+						} else {
+							operation.addParam(name, value);
+						}
+					}
+				}
+				final Object body = object.get("body");
+				if (body instanceof JSONObject) {
+					operation.body = ((JSONObject) body).toJSONString();
+				} else if (body != null) {
+					operation.body = body.toString();
+				}
+				operations.add(operation);
+			}
+		} catch (final InvalidRequestException exception) {
+			throw exception;
+		} catch (final Exception exception) {
+			throw new InvalidRequestException("Error parsing batch request body: " + exception.toString());
+		}
+		return operations;
+	}
+
+	private List<Operation> parseXml(final String requestBody) throws InvalidRequestException {
+		final List<Operation> operations = new ArrayList<Operation>();
+		try {
+			final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+					new ByteArrayInputStream(requestBody.getBytes("UTF-8")));
+			final NodeList operationElements = document.getDocumentElement().getElementsByTagName("operation");
+			for (int i = 0; i < operationElements.getLength(); i++) {
+				final Element element = (Element) operationElements.item(i);
+				final Operation operation = new Operation(element.getAttribute("method"), element
+						.getAttribute("resource"));
+				final List<String> resIds = new ArrayList<String>();
+				for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+					if (child.getNodeType() != Node.ELEMENT_NODE) {
+						continue;
+					}
+					final Element childElement = (Element) child;
+					if (childElement.getTagName().equals("resId")) {
+						resIds.add(childElement.getTextContent());
+					} else if (childElement.getTagName().equals("param")) {
+						operation.addParam(childElement.getAttribute("name"), childElement.getAttribute("value"));
+					} else if (childElement.getTagName().equals("request")) {
+						operation.body = toString(childElement);
+					}
+				}
+				if (resIds.size() > 0) {
+					operation.resIds = resIds.toArray(new String[resIds.size()]);
+				}
+				operations.add(operation);
+			}
+		} catch (final InvalidRequestException exception) {
+			throw exception;
+		} catch (final Exception exception) {
+			throw new InvalidRequestException("Error parsing batch request body: " + exception.toString());
+		}
+		return operations;
+	}
+
+	/** Returns status of an operation rejected by a concurrency limiter. */
+	private Result rejectOperation(final Operation operation) {
+		final RequestLogger requestLogger = Factory.getRequestLogger();
+		requestLogger.setHttpRequestAttributes(httpAttributes);
+		requestLogger.log(Status.SERVICE_UNAVAILABLE.getStatusCode());
+		return new Result(Status.SERVICE_UNAVAILABLE.getStatusCode(), null, "Too many concurrent requests for "
+				+ operation.resName);
+	}
+
+	/** Serializes element, used to pass an operation's XML body to the XML request deserializer. */
+	private String toString(final Element element) throws Exception {
+		final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		final StringWriter writer = new StringWriter();
+		transformer.transform(new DOMSource(element), new StreamResult(writer));
+		return writer.toString();
+	}
+
+	/** Status and operation results of a batch. */
+	static class BatchResults {
+		private final List<Result> results;
+		private final int status;
+
+		BatchResults(final int status, final List<Result> results) {
+			this.status = status;
+			this.results = results;
+		}
+
+		int getStatus() {
+			return status;
+		}
+
+		/** Returns results document in the media type. */
+		String serialize(final String mediaType) {
+			final StringBuilder string = new StringBuilder(200 + results.size() * 500);
+			if (MediaType.APPLICATION_JSON.equals(mediaType)) {
+				string.append("{ \"results\": [");
+				for (int i = 0; i < results.size(); i++) {
+					final Result result = results.get(i);
+					string.append(i == 0 ? "\n\t{ \"status\": " : ",\n\t{ \"status\": ");
+					string.append(result.status);
+					if (result.body != null) {
+						string.append(", \"body\": ");
+						string.append(result.body);
+					} else if (result.message != null) {
+						string.append(", \"message\": ");
+						JsonUtil.appendQuoted(string, result.message);
+					}
+					string.append(" }");
+				}
+				string.append("\n\t]\n}");
+			} else {
+				string.append("<batchResponse>");
+				for (final Result result : results) {
+					string.append("\n\t<result status=\"");
+					string.append(result.status);
+					if (result.body != null) {
+						string.append("\">");
+						string.append(stripXmlDirective(result.body));
+						string.append("</result>");
+					} else {
+						if (result.message != null) {
+							string.append("\" message=\"");
+							string.append(StringEscapeUtils.escapeXml(result.message));
+						}
+						string.append("\" />");
+					}
+				}
+				string.append("\n</batchResponse>");
+			}
+			return string.toString();
+		}
+
+		private String stripXmlDirective(final String body) {
+			if (body.startsWith("<?xml")) {
+				return body.substring(body.indexOf("?>") + 2).trim();
+			}
+			return body;
+		}
+	}
+
+	/** Parsed operation. */
+	private static class Operation {
+		private String body;
+		private final String method;
+		private final List<NameValuePair> params = new ArrayList<NameValuePair>();
+		private String[] resIds;
+		private final String resName;
+		private final Request.Type type;
+
+		Operation(final String method, final String resName) throws InvalidRequestException {
+			if (resName == null || resName.length() == 0) {
+				throw new InvalidRequestException("Batch operation requires a resource");
+			}
+			this.method = method;
+			this.resName = resName;
+			if ("GET".equals(method)) {
+				type = Request.Type.SELECT;
+			} else if ("POST".equals(method)) {
+				type = Request.Type.INSERT;
+			} else if ("PUT".equals(method)) {
+				type = Request.Type.UPDATE;
+			} else if ("DELETE".equals(method)) {
+				type = Request.Type.DELETE;
+			} else {
+				throw new InvalidRequestException("Batch operation on " + resName
+						+ " requires method GET, POST, PUT or DELETE");
+			}
+		}
+
+		void addParam(final String name, final Object value) {
+			params.add(new NameValuePair(name, value == null ? null : value.toString()));
+		}
+	}
+
+	/** Operation status and serialized response or error message. */
+	private static class Result {
+		private final String body;
+		private final String message;
+		private final int status;
+
+		Result(final int status, final String body, final String message) {
+			this.status = status;
+			this.body = body;
+			this.message = message;
+		}
+	}
+}
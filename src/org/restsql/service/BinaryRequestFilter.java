@@ -0,0 +1,55 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.MediaType;
+
+import org.restsql.core.BinaryFormat;
+import org.restsql.core.Factory;
+import org.restsql.core.RequestUtil;
+import org.restsql.core.SqlResourceException;
+
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+
+/**
+ * Sets the charset of request bodies in binary media types, e.g. MessagePack, to the {@link BinaryFormat#CHARSET},
+ * so that Jersey decodes them to the binary strings expected by their deserializers. Registered in web.xml.
+ *
+ * @author Mark Sawers
+ */
+public class BinaryRequestFilter implements ContainerRequestFilter {
+
+	@Override
+	public ContainerRequest filter(final ContainerRequest request) {
+		final MediaType mediaType = request.getMediaType();
+		if (mediaType != null && !BinaryFormat.CHARSET.equals(mediaType.getParameters().get("charset"))
+				&& isBinary(mediaType)) {
+			final Map<String, String> parameters = new HashMap<String, String>(mediaType.getParameters());
+			parameters.put("charset", BinaryFormat.CHARSET);
+
+			// Replace the headers, since the request caches the media type
+			final InBoundHeaders headers = new InBoundHeaders();
+			headers.putAll(request.getRequestHeaders());
+			headers.putSingle("Content-Type", new MediaType(mediaType.getType(), mediaType.getSubtype(), parameters)
+					.toString());
+			request.setHeaders(headers);
+		}
+		return request;
+	}
+
+	// Private utils
+
+	private boolean isBinary(final MediaType mediaType) {
+		try {
+			return Factory.getRequestDeserializer(RequestUtil.getRequestMediaType(mediaType.getType() + "/"
+					+ mediaType.getSubtype())) instanceof BinaryFormat;
+		} catch (final SqlResourceException exception) {
+			// No deserializer for the media type, e.g. form url encoded
+			return false;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.service;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.restsql.core.impl.SqlResourceWarmUp;
+
+/**
+ * Reports service health for load balancers and orchestrators.
+ *
+ * @author Mark Sawers
+ */
+@Path("/health")
+public class HealthResource {
+
+	/** Returns OK with the warm-up report once warm-up has completed, and Service Unavailable until then. */
+	@GET
+	@Path("ready")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getReady() {
+		final Status status = SqlResourceWarmUp.isReady() ? Status.OK : Status.SERVICE_UNAVAILABLE;
+		return Response.status(status).entity(SqlResourceWarmUp.dumpReport()).build();
+	}
+}
@@ -10,10 +10,12 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
+import org.restsql.core.BinaryFormat;
 import org.restsql.core.Factory;
 import org.restsql.core.Factory.SqlResourceFactoryException;
 import org.restsql.core.HttpRequestAttributes;
 import org.restsql.core.InvalidRequestException;
+import org.restsql.core.QueryTimeoutException;
 import org.restsql.core.RequestLogger;
 import org.restsql.core.SqlResourceException;
 
@@ -23,6 +25,8 @@ import org.restsql.core.SqlResourceException;
  * @author Mark Sawers
  */
 public class HttpRequestHelper {
+	/** Not defined in JAX-RS 1.1 Response.Status. */
+	private static final int STATUS_GATEWAY_TIMEOUT = 504;
 
 	/** Builds HTML page with SQL Resources and actions for each. Used for /restsql/res and /restsql/conf. */
 	public static StringBuffer buildSqlResourceListing(final UriInfo uriInfo) {
@@ -84,6 +88,11 @@ public class HttpRequestHelper {
 		return requestBody;
 	}
 
+	/** Returns charset for response bodies in the media type, {@link BinaryFormat#CHARSET} if binary or else UTF-8. */
+	static String getCharset(final String mediaType) throws SqlResourceException {
+		return Factory.getResponseSerializer(mediaType) instanceof BinaryFormat ? BinaryFormat.CHARSET : "UTF-8";
+	}
+
 	/**
 	 * Creates attributes helper object from http request with a request body.
 	 * 
@@ -125,25 +134,33 @@ public class HttpRequestHelper {
 	}
 
 	/**
-	 * Determines exception type, logs issue and returns appropriate http status with the exception message in the body.
+	 * Returns http status for the exception type. Query timeouts and cancellations return 504 (Gateway Timeout).
 	 */
-	public static Response handleException(final HttpServletRequest httpRequest, final String requestBody,
-			final String requestMediaType, final SqlResourceException exception, RequestLogger requestLogger) {
-		Status status;
+	public static int getStatusCode(final SqlResourceException exception) {
 		if (exception instanceof SqlResourceFactoryException) {
-			status = Status.NOT_FOUND;
+			return Status.NOT_FOUND.getStatusCode();
 		} else if (exception instanceof InvalidRequestException) {
-			status = Status.BAD_REQUEST;
+			return Status.BAD_REQUEST.getStatusCode();
+		} else if (exception instanceof QueryTimeoutException) {
+			return STATUS_GATEWAY_TIMEOUT;
 		} else { // exception instanceof SqlResourceException
-			status = Status.INTERNAL_SERVER_ERROR;
+			return Status.INTERNAL_SERVER_ERROR.getStatusCode();
 		}
+	}
+
+	/**
+	 * Determines exception type, logs issue and returns appropriate http status with the exception message in the body.
+	 */
+	public static Response handleException(final HttpServletRequest httpRequest, final String requestBody,
+			final String requestMediaType, final SqlResourceException exception, RequestLogger requestLogger) {
+		final int status = getStatusCode(exception);
 		if (requestLogger == null) {
 			requestLogger = Factory.getRequestLogger();
 			final HttpRequestAttributes httpAttribs = getHttpRequestAttributes(httpRequest, requestBody,
 					requestMediaType, requestMediaType);
 			requestLogger.setHttpRequestAttributes(httpAttribs);
 		}
-		requestLogger.log(status.getStatusCode(), exception);
+		requestLogger.log(status, exception);
 		return Response.status(status).entity(exception.getMessage()).type(MediaType.TEXT_PLAIN).build();
 	}
 }
\ No newline at end of file
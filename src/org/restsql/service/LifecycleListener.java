@@ -8,6 +8,11 @@ import javax.servlet.ServletContextListener;
 
 import org.restsql.core.Config;
 import org.restsql.core.Factory;
+import org.restsql.core.impl.AsyncTriggerExecutor;
+import org.restsql.core.impl.DatabaseExecutor;
+import org.restsql.core.impl.SqlResourceWarmUp;
+import org.restsql.core.impl.SqlResourceWatcher;
+import org.restsql.security.SecurityFactory;
 
 /**
  * Loads properties file from servlet context.
@@ -25,12 +30,19 @@ public class LifecycleListener implements ServletContextListener {
 		System.out.println("Loading restsql properties from " + value);
     	System.setProperty(Config.KEY_RESTSQL_PROPERTIES, value);
     	Config.loadAllProperties();
+    	Factory.initialize();
+    	SecurityFactory.initialize();
+    	SqlResourceWarmUp.start();
+    	SqlResourceWatcher.start();
     }
 
 	/**
      * @see ServletContextListener#contextDestroyed(ServletContextEvent)
      */
     public void contextDestroyed(ServletContextEvent arg0) {
+    	SqlResourceWatcher.stop();
+    	AsyncTriggerExecutor.shutdown();
+    	DatabaseExecutor.shutdown();
     	try {
 			Factory.getConnectionFactory().destroy();
 		} catch (SQLException exception) {
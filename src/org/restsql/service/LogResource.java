@@ -27,6 +27,7 @@ public class LogResource {
 	private static final String LOG_NAME_ACCESS = "access.log";
 	private static final String LOG_NAME_ERROR = "error.log";
 	private static final String LOG_NAME_INTERNAL = "internal.log";
+	private static final String LOG_NAME_SLOW_SQL = "slowsql.log";
 	private static final String LOG_NAME_TRACE = "trace.log";
 
 	@GET
@@ -40,13 +41,15 @@ public class LogResource {
 		appendCurrentLogAnchor(body, baseUri, "error");
 		appendCurrentLogAnchor(body, baseUri, "trace");
 		appendCurrentLogAnchor(body, baseUri, "internal");
+		appendCurrentLogAnchor(body, baseUri, "slowsql");
 		body.append("<p/><p/><span style=\"font-weight:bold\">Historical Logs</span><br/>");
 		final File dir = new File(getLogDir());
 		for (final File file : dir.listFiles()) {
 			if (file.getName().contains(".log")) {
 				if (!file.getName().equals(LOG_NAME_ACCESS) && !file.getName().equals(LOG_NAME_ERROR)
 						&& !file.getName().equals(LOG_NAME_TRACE)
-						&& !file.getName().equals(LOG_NAME_INTERNAL)) {
+						&& !file.getName().equals(LOG_NAME_INTERNAL)
+						&& !file.getName().equals(LOG_NAME_SLOW_SQL)) {
 					body.append("<a href=\"");
 					body.append(baseUri);
 					body.append(file.getName());
@@ -81,6 +84,13 @@ public class LogResource {
 		return getFileContents(LOG_NAME_INTERNAL);
 	}
 
+	@GET
+	@Path("slowsql")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getCurrentSlowSqlLog() {
+		return getFileContents(LOG_NAME_SLOW_SQL);
+	}
+
 	@GET
 	@Path("trace")
 	@Produces(MediaType.TEXT_PLAIN)
@@ -30,8 +30,12 @@ import org.restsql.core.Request;
 import org.restsql.core.Request.Type;
 import org.restsql.core.RequestLogger;
 import org.restsql.core.RequestUtil;
+import org.restsql.core.ResponseSerializer;
 import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
+import org.restsql.core.StreamingResponseSerializer;
+import org.restsql.core.impl.ConcurrencyLimiter;
+import org.restsql.core.impl.XmlResponseSerializer;
 import org.restsql.security.SecurityFactory;
 
 /**
@@ -42,6 +46,40 @@ import org.restsql.security.SecurityFactory;
 @Path("res")
 public class ResResource {
 
+	/**
+	 * Executes a batch of operations, in parallel for reads or in one transaction if any write. See
+	 * {@link BatchRequestProcessor}.
+	 */
+	@POST
+	@Path("_batch")
+	public Response batch(final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
+			@Context final SecurityContext securityContext) {
+		final String requestMediaType = RequestUtil.getRequestMediaType(contentMediaType);
+		String responseMediaType = RequestUtil.getResponseMediaType(null, requestMediaType, acceptMediaType);
+		if (!responseMediaType.equals(MediaType.APPLICATION_JSON)) {
+			responseMediaType = MediaType.APPLICATION_XML;
+		}
+		final HttpRequestAttributes httpAttributes = HttpRequestHelper.getHttpRequestAttributes(httpRequest,
+				requestBody, requestMediaType, responseMediaType);
+		final RequestLogger requestLogger = Factory.getRequestLogger();
+		requestLogger.setHttpRequestAttributes(httpAttributes);
+
+		// Operations are admitted individually by the resource and global limits, like single requests
+		try {
+			final BatchRequestProcessor.BatchResults results = new BatchRequestProcessor(httpAttributes,
+					requestMediaType, responseMediaType, securityContext).execute(requestBody);
+			return ResponseCompressor.setEntity(Response.status(results.getStatus()),
+					results.serialize(responseMediaType), "UTF-8", httpRequest.getHeader("Accept-Encoding"),
+					ResponseCompressor.getThreshold(null)).type(responseMediaType).header("Cache-Control",
+							Config.properties.getProperty(Config.KEY_HTTP_CACHE_CONTROL,
+									Config.DEFAULT_HTTP_CACHE_CONTROL)).build();
+		} catch (final SqlResourceException exception) {
+			return HttpRequestHelper.handleException(httpRequest, requestBody, requestMediaType, exception,
+					requestLogger);
+		}
+	}
+
 	@DELETE
 	@Path("{resName}/{resId1}")
 	public Response delete(@PathParam("resName") final String resName,
@@ -278,6 +316,34 @@ public class ResResource {
 
 	// Private utils
 
+	/**
+	 * Admits request through the resource limiter and then the global limiter, if any. Every request and batch
+	 * operation acquires in this order, so that a busy resource queues without holding a global permit. Returns false
+	 * if the request is rejected, holding neither permit.
+	 */
+	static boolean acquire(final ConcurrencyLimiter resourceLimiter, final ConcurrencyLimiter globalLimiter) {
+		if (!acquire(resourceLimiter)) {
+			return false;
+		} else if (!acquire(globalLimiter)) {
+			release(resourceLimiter);
+			return false;
+		}
+		return true;
+	}
+
+	/** Admits request through the limiter, if any. Returns false if the request is rejected. */
+	private static boolean acquire(final ConcurrencyLimiter limiter) {
+		if (limiter == null) {
+			return true;
+		}
+		try {
+			return limiter.acquire();
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
 	/** Processes the request. The central method of this resource class. */
 	private Response executeRequest(HttpServletRequest httpRequest, final Request.Type requestType,
 			final String resName, SqlResource sqlResource, final List<NameValuePair> resIds,
@@ -309,42 +375,39 @@ public class ResResource {
 				sqlResource = Factory.getSqlResource(resName);
 			}
 
+			// Stream reads in streaming media types, executing them as the response is written
+			if (requestType == Request.Type.SELECT && isStreamed(responseMediaType)) {
+				final Request request = Factory.getRequest(httpAttributes, requestType, resName, resIds, params,
+						null, requestLogger);
+				return ResponseCompressor.setEntity(Response.ok(),
+						new StreamingReadOutput(httpRequest, sqlResource, request, responseMediaType),
+						httpRequest.getHeader("Accept-Encoding"), ResponseCompressor.getThreshold(sqlResource))
+						.type(responseMediaType).header("Cache-Control", getCacheControl(sqlResource)).build();
+			}
+
+			// Admit request
+			final ConcurrencyLimiter resourceLimiter = ConcurrencyLimiter.getLimiter(sqlResource);
+			final ConcurrencyLimiter globalLimiter = ConcurrencyLimiter.getGlobalLimiter();
+			if (!acquire(resourceLimiter, globalLimiter)) {
+				return rejectRequest(requestLogger, resName);
+			}
+
 			// Execute request
-			if (requestType.equals(Request.Type.SELECT)) {
-				final Request request = Factory.getRequest(httpAttributes, requestType, resName, resIds,
-						params, null, requestLogger);
-				responseBody = sqlResource.read(request, responseMediaType);
-			} else { // INSERT, UPDATE or DELETE
-				final int rowsAffected;
-				if (requestMediaType != null
-						&& !requestMediaType.equals(MediaType.APPLICATION_FORM_URLENCODED)
-						&& requestBody != null && requestBody.length() > 0) {
-					// requestBody is not null, use request processor
-					rowsAffected = Factory.getRequestDeserializer(requestMediaType).execWrite(httpAttributes,
-							requestType, resIds, sqlResource, requestBody, requestLogger);
-				} else {
-					final Request request = Factory.getRequest(httpAttributes, requestType, resName, resIds,
-							params, null, requestLogger);
-					rowsAffected = sqlResource.write(request);
-				}
-				responseBody = Factory.getResponseSerializer(responseMediaType).serializeWrite(rowsAffected);
+			try {
+				responseBody = executeSqlResourceRequest(httpAttributes, requestType, resName, sqlResource, resIds,
+						params, requestBody, requestMediaType, responseMediaType, requestLogger);
+			} finally {
+				release(resourceLimiter, globalLimiter);
 			}
 
 			// Log response and send it
 			requestLogger.log(responseBody);
 
-			// Get cache control
-
-			String cacheControl = Config.properties.getProperty(Config.KEY_HTTP_CACHE_CONTROL,
-					Config.DEFAULT_HTTP_CACHE_CONTROL);
-			if (sqlResource.getDefinition().getHttp() != null
-					&& sqlResource.getDefinition().getHttp().getResponse() != null) {
-				cacheControl = sqlResource.getDefinition().getHttp().getResponse().getCacheControl();
-			}
-
-			// Send the response
-			return Response.ok(responseBody).type(responseMediaType).header("Cache-Control", cacheControl)
-					.build();
+			// Send the response, compressed if accepted by the client and large enough
+			return ResponseCompressor.setEntity(Response.ok(), responseBody,
+					HttpRequestHelper.getCharset(responseMediaType), httpRequest.getHeader("Accept-Encoding"),
+					ResponseCompressor.getThreshold(sqlResource))
+					.type(responseMediaType).header("Cache-Control", getCacheControl(sqlResource)).build();
 
 		} catch (final SqlResourceException exception) {
 			return HttpRequestHelper.handleException(httpRequest, requestBody, requestMediaType, exception,
@@ -352,6 +415,32 @@ public class ResResource {
 		}
 	}
 
+	/** Executes the SQL and serializes the response body. */
+	static String executeSqlResourceRequest(final HttpRequestAttributes httpAttributes,
+			final Request.Type requestType, final String resName, final SqlResource sqlResource,
+			final List<NameValuePair> resIds, final List<NameValuePair> params, final String requestBody,
+			final String requestMediaType, final String responseMediaType, final RequestLogger requestLogger)
+			throws SqlResourceException {
+		if (requestType.equals(Request.Type.SELECT)) {
+			final Request request = Factory.getRequest(httpAttributes, requestType, resName, resIds, params, null,
+					requestLogger);
+			return sqlResource.read(request, responseMediaType);
+		} else { // INSERT, UPDATE or DELETE
+			final int rowsAffected;
+			if (requestMediaType != null && !requestMediaType.equals(MediaType.APPLICATION_FORM_URLENCODED)
+					&& requestBody != null && requestBody.length() > 0) {
+				// requestBody is not null, use request processor
+				rowsAffected = Factory.getRequestDeserializer(requestMediaType).execWrite(httpAttributes,
+						requestType, resIds, sqlResource, requestBody, requestLogger);
+			} else {
+				final Request request = Factory.getRequest(httpAttributes, requestType, resName, resIds, params,
+						null, requestLogger);
+				rowsAffected = sqlResource.write(request);
+			}
+			return Factory.getResponseSerializer(responseMediaType).serializeWrite(rowsAffected);
+		}
+	}
+
 	/**
 	 * Pre-processes request, parsing resource ids into a collection, and then passing the request on to
 	 * executeRequest().
@@ -373,6 +462,16 @@ public class ResResource {
 				contentMediaType, acceptMediaType, securityContext);
 	}
 
+	/** Returns cache control from the definition, or the system default if not defined. */
+	private String getCacheControl(final SqlResource sqlResource) {
+		if (sqlResource.getDefinition().getHttp() != null
+				&& sqlResource.getDefinition().getHttp().getResponse() != null
+				&& sqlResource.getDefinition().getHttp().getResponse().getCacheControl() != null) {
+			return sqlResource.getDefinition().getHttp().getResponse().getCacheControl();
+		}
+		return Config.properties.getProperty(Config.KEY_HTTP_CACHE_CONTROL, Config.DEFAULT_HTTP_CACHE_CONTROL);
+	}
+
 	/** Converts form or query params into a list of NameValuePairs. */
 	private List<NameValuePair> getNameValuePairs(final MultivaluedMap<String, String> formOrQueryParams) {
 		final List<NameValuePair> params = new ArrayList<NameValuePair>(formOrQueryParams.size());
@@ -384,4 +483,35 @@ public class ResResource {
 		}
 		return params;
 	}
+
+	/**
+	 * Returns true if reads in the media type are streamed. XML, the default format, is streamed only if configured, so
+	 * that by default its reads may be coalesced, are compressed only above the threshold and have their bodies logged.
+	 */
+	private boolean isStreamed(final String responseMediaType) throws SqlResourceException {
+		final ResponseSerializer serializer = Factory.getResponseSerializer(responseMediaType);
+		return serializer instanceof StreamingResponseSerializer
+				&& (!(serializer instanceof XmlResponseSerializer) || Boolean.valueOf(Config.properties.getProperty(
+						Config.KEY_RESPONSE_STREAM_XML, Config.DEFAULT_RESPONSE_STREAM_XML)));
+	}
+
+	/** Rejects request over the concurrency limit with 503 and a Retry-After header. */
+	static Response rejectRequest(final RequestLogger requestLogger, final String resName) {
+		final Status status = Status.SERVICE_UNAVAILABLE;
+		requestLogger.log(status.getStatusCode());
+		return Response.status(status).header("Retry-After", String.valueOf(ConcurrencyLimiter.getRetryAfter()))
+				.entity("Too many concurrent requests for " + resName).type(MediaType.TEXT_PLAIN).build();
+	}
+
+	/** Releases the permits acquired by {@link #acquire(ConcurrencyLimiter, ConcurrencyLimiter)}. */
+	static void release(final ConcurrencyLimiter resourceLimiter, final ConcurrencyLimiter globalLimiter) {
+		release(globalLimiter);
+		release(resourceLimiter);
+	}
+
+	private static void release(final ConcurrencyLimiter limiter) {
+		if (limiter != null) {
+			limiter.release();
+		}
+	}
 }
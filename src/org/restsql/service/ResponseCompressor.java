@@ -0,0 +1,203 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.restsql.core.Config;
+import org.restsql.core.SqlResource;
+
+/**
+ * Negotiates gzip or deflate content encoding from the request's Accept-Encoding header and compresses response bodies
+ * at or above a size threshold as they are written to the client. The threshold is configured by
+ * <code>http.response.compressionThreshold</code> and may be overridden in the SQL Resource definition. Streamed
+ * responses, of unknown size, are compressed whenever compression is enabled and accepted, and flushes of the stream
+ * reach the client.
+ *
+ * @author Mark Sawers
+ */
+public class ResponseCompressor {
+	static final String DEFLATE = "deflate";
+	static final String GZIP = "gzip";
+
+	/**
+	 * Returns the accepted encoding with the highest quality, gzip or deflate, preferring gzip when equal, or null if
+	 * neither is accepted.
+	 */
+	static String getContentEncoding(final String acceptEncoding) {
+		if (acceptEncoding == null || acceptEncoding.length() == 0) {
+			return null;
+		}
+		String encoding = null;
+		float encodingQuality = 0;
+		for (final String element : acceptEncoding.split(",")) {
+			final String[] parts = element.split(";");
+			final String coding = parts[0].trim().toLowerCase();
+			float quality = 1;
+			for (int i = 1; i < parts.length; i++) {
+				final String parameter = parts[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						quality = Float.parseFloat(parameter.substring(2));
+					} catch (final NumberFormatException exception) {
+						quality = 0;
+					}
+				}
+			}
+			final String candidate;
+			if (coding.equals(GZIP) || coding.equals("x-gzip") || coding.equals("*")) {
+				candidate = GZIP;
+			} else if (coding.equals(DEFLATE)) {
+				candidate = DEFLATE;
+			} else {
+				continue;
+			}
+			if (quality > encodingQuality || (quality > 0 && quality == encodingQuality && candidate == GZIP)) {
+				encoding = candidate;
+				encodingQuality = quality;
+			}
+		}
+		return encoding;
+	}
+
+	/** Returns the compression threshold from the resource definition, or the system default if null. */
+	static int getThreshold(final SqlResource sqlResource) {
+		if (sqlResource != null && sqlResource.getDefinition().getHttp() != null
+				&& sqlResource.getDefinition().getHttp().getResponse() != null
+				&& sqlResource.getDefinition().getHttp().getResponse().getCompressionThreshold() != null) {
+			return sqlResource.getDefinition().getHttp().getResponse().getCompressionThreshold().intValue();
+		}
+		return Integer.parseInt(Config.properties.getProperty(Config.KEY_HTTP_COMPRESSION_THRESHOLD,
+				Config.DEFAULT_HTTP_COMPRESSION_THRESHOLD));
+	}
+
+	/**
+	 * Sets the response body, encoded in the charset, on the builder, compressed if the client accepts gzip or deflate
+	 * and the encoded length is at or above the threshold. A negative threshold disables compression.
+	 */
+	static ResponseBuilder setEntity(final ResponseBuilder builder, final String body, final String charset,
+			final String acceptEncoding, final int threshold) {
+		final byte[] bytes = body.getBytes(Charset.forName(charset));
+		if (threshold < 0) {
+			return builder.entity(bytes);
+		}
+		builder.header("Vary", "Accept-Encoding");
+		final String encoding = bytes.length < threshold ? null : getContentEncoding(acceptEncoding);
+		if (encoding == null) {
+			return builder.entity(bytes);
+		}
+		return builder.entity(new CompressingOutput(new StreamingOutput() {
+			@Override
+			public void write(final OutputStream output) throws IOException {
+				output.write(bytes);
+			}
+		}, encoding)).header("Content-Encoding", encoding);
+	}
+
+	/**
+	 * Sets the streamed response body on the builder, compressed if compression is enabled and the client accepts gzip
+	 * or deflate.
+	 */
+	static ResponseBuilder setEntity(final ResponseBuilder builder, final StreamingOutput body,
+			final String acceptEncoding, final int threshold) {
+		if (threshold < 0) {
+			return builder.entity(body);
+		}
+		builder.header("Vary", "Accept-Encoding");
+		final String encoding = getContentEncoding(acceptEncoding);
+		if (encoding == null) {
+			return builder.entity(body);
+		}
+		return builder.entity(new CompressingOutput(body, encoding)).header("Content-Encoding", encoding);
+	}
+
+	/** Writes the body through a compressing stream, releasing the compressor's native memory when done. */
+	private static class CompressingOutput implements StreamingOutput {
+		private final StreamingOutput body;
+		private final String encoding;
+
+		CompressingOutput(final StreamingOutput body, final String encoding) {
+			this.body = body;
+			this.encoding = encoding;
+		}
+
+		@Override
+		public void write(final OutputStream output) throws IOException, WebApplicationException {
+			final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, encoding == GZIP);
+			try {
+				final CompressingStream compressingStream = new CompressingStream(output, encoding, deflater);
+				body.write(compressingStream);
+				compressingStream.finish();
+			} finally {
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Opens the compressor on first write, since gzip writes a header on opening, so that a body failing before any
+	 * output does not commit the response and can still set the status.
+	 */
+	private static class CompressingStream extends OutputStream {
+		private DeflaterOutputStream compressedOutput;
+		private final Deflater deflater;
+		private final String encoding;
+		private final OutputStream output;
+
+		CompressingStream(final OutputStream output, final String encoding, final Deflater deflater) {
+			this.output = output;
+			this.encoding = encoding;
+			this.deflater = deflater;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (compressedOutput != null) {
+				compressedOutput.flush();
+			}
+		}
+
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+			getCompressedOutput().write(bytes, offset, length);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			getCompressedOutput().write(b);
+		}
+
+		/** Completes the compressed stream without closing the underlying stream. */
+		void finish() throws IOException {
+			getCompressedOutput().finish();
+		}
+
+		private DeflaterOutputStream getCompressedOutput() throws IOException {
+			if (compressedOutput == null) {
+				compressedOutput = encoding == GZIP ? new GzipStream(output, deflater)
+						: new DeflaterOutputStream(output, deflater, 512, true);
+			}
+			return compressedOutput;
+		}
+	}
+
+	/**
+	 * Gzip stream compressing with the given raw (nowrap) deflater instead of its own, since GZIPOutputStream only
+	 * releases its own deflater on close, which would also close the response stream.
+	 */
+	private static class GzipStream extends GZIPOutputStream {
+		GzipStream(final OutputStream output, final Deflater deflater) throws IOException {
+			super(output, 8192, true);
+			def.end();
+			def = deflater;
+		}
+	}
+}
@@ -1,17 +1,98 @@
-/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.service;
 
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import org.restsql.core.Config;
+import org.restsql.core.impl.AsyncTriggerExecutor;
+import org.restsql.core.impl.ConcurrencyLimiter;
+import org.restsql.core.impl.DatabaseExecutor;
+import org.restsql.core.impl.ReadCoalescer;
+import org.restsql.core.impl.RunningStatements;
+import org.restsql.core.impl.SqlStatistics;
+
+/**
+ * Provides access to runtime statistics.
+ *
+ * @author Mark Sawers
+ */
 @Path("/stats")
 public class StatsResource {
+	/** Cancels an executing statement. */
+	@DELETE
+	@Path("queries/{id}")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response cancelQuery(@PathParam("id") final long id) {
+		if (RunningStatements.cancel(id)) {
+			return Response.ok("Cancelled statement " + id).build();
+		} else {
+			return Response.status(Response.Status.NOT_FOUND).entity("Statement " + id + " not running").build();
+		}
+	}
+
 	@GET
 	@Produces(MediaType.TEXT_PLAIN)
 	public Response getStatus() {
 		return Response.ok("Work in progress").build();
 	}
+
+	/** Returns asynchronous trigger executor counters. */
+	@GET
+	@Path("triggers")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getTriggerStatistics() {
+		return Response.ok(AsyncTriggerExecutor.dumpStatistics()).build();
+	}
+
+	/** Returns concurrency limits with active and queued requests. */
+	@GET
+	@Path("concurrency")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getConcurrencyStatistics() {
+		return Response.ok(ConcurrencyLimiter.dumpStatistics()).build();
+	}
+
+	/** Returns read coalescing counters. */
+	@GET
+	@Path("coalescing")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getCoalescingStatistics() {
+		return Response.ok(ReadCoalescer.dumpStatistics()).build();
+	}
+
+	/** Returns database executor threads, queue depth and counters. */
+	@GET
+	@Path("executor")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getExecutorStatistics() {
+		return Response.ok(DatabaseExecutor.dumpStatistics()).build();
+	}
+
+	/** Returns executing statements, oldest first. */
+	@GET
+	@Path("queries")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getRunningQueries() {
+		return Response.ok(RunningStatements.dumpStatements()).build();
+	}
+
+	/** Returns SQL fingerprints ordered by total execution time. */
+	@GET
+	@Path("sql")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getSqlStatistics(@QueryParam("top") final Integer top) {
+		final int limit = top != null ? top.intValue() : Integer.parseInt(Config.properties.getProperty(
+				Config.KEY_SQL_STATS_TOP, Config.DEFAULT_SQL_STATS_TOP));
+		if (limit < 0) {
+			return Response.status(Response.Status.BAD_REQUEST).entity("top must not be negative").build();
+		}
+		return Response.ok(SqlStatistics.dumpStatistics(limit)).build();
+	}
 }
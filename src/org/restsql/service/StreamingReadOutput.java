@@ -0,0 +1,59 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.restsql.core.Request;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceException;
+import org.restsql.core.impl.ConcurrencyLimiter;
+
+/**
+ * Executes a read while the response is written, streaming rows to the client as they are read. The request is
+ * admitted by the concurrency limiters for the duration of the write.
+ * Failures before any rows are written are returned with the usual status. Later failures truncate the response.
+ *
+ * @author Mark Sawers
+ */
+class StreamingReadOutput implements StreamingOutput {
+	private final HttpServletRequest httpRequest;
+	private final Request request;
+	private final String responseMediaType;
+	private final SqlResource sqlResource;
+
+	StreamingReadOutput(final HttpServletRequest httpRequest, final SqlResource sqlResource,
+			final Request request, final String responseMediaType) {
+		this.httpRequest = httpRequest;
+		this.sqlResource = sqlResource;
+		this.request = request;
+		this.responseMediaType = responseMediaType;
+	}
+
+	@Override
+	public void write(final OutputStream output) throws IOException, WebApplicationException {
+		final ConcurrencyLimiter resourceLimiter = ConcurrencyLimiter.getLimiter(sqlResource);
+		final ConcurrencyLimiter globalLimiter = ConcurrencyLimiter.getGlobalLimiter();
+		if (!ResResource.acquire(resourceLimiter, globalLimiter)) {
+			throw new WebApplicationException(ResResource.rejectRequest(request.getLogger(), sqlResource.getName()));
+		}
+		try {
+			final Writer writer = new OutputStreamWriter(output, HttpRequestHelper.getCharset(responseMediaType));
+			sqlResource.read(request, responseMediaType, writer);
+			writer.flush();
+			request.getLogger().log(Status.OK.getStatusCode());
+		} catch (final SqlResourceException exception) {
+			throw new WebApplicationException(HttpRequestHelper.handleException(httpRequest, null, null,
+					exception, request.getLogger()));
+		} finally {
+			ResResource.release(resourceLimiter, globalLimiter);
+		}
+	}
+}